@@ -0,0 +1,91 @@
+package com.mtsaas.backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Sample messages under {@code src/jmh/resources/corpus}, and the small ones under
+ * {@code src/main/resources/warmup}: they are also the application's warm-up corpus, so they are kept in
+ * one place only.
+ *
+ * MT samples are hand-written; the MX samples are the {@code Document} part of what the generators
+ * produce for them, so every sample is accepted by the code under test. {@code camt053-large} is the
+ * small statement with sixty entries.
+ *
+ * With {@code -Dcorpus.file=<ndjson or zip>} (pass it to the forks with {@code -jvmArgsAppend}), sample
+ * names are first looked up among the ids of a corpus written by the load-test profile's
+ * {@code CorpusGenerator}, e.g. {@code -p sample=mt940-0000017}.
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    static String mt(String name) {
+        String generated = generated(name, "mt");
+        return generated != null ? generated : load(name + ".txt");
+    }
+
+    static String mx(String name) {
+        String generated = generated(name, "mx");
+        return generated != null ? generated : load(name + ".xml");
+    }
+
+    private static String generated(String id, String side) {
+        String file = System.getProperty("corpus.file");
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        try {
+            if (file.endsWith(".zip")) {
+                try (ZipFile zip = new ZipFile(file)) {
+                    ZipEntry entry = zip.getEntry(side + "/" + id + ("mt".equals(side) ? ".txt" : ".xml"));
+                    return entry == null ? null
+                            : new String(zip.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+            ObjectMapper mapper = new ObjectMapper();
+            try (Stream<String> lines = Files.lines(Path.of(file))) {
+                return lines.filter(line -> line.contains("\"" + id + "\""))
+                        .map(line -> readTree(mapper, line))
+                        .filter(entry -> id.equals(entry.path("id").asText()))
+                        .map(entry -> entry.path(side).asText(null))
+                        .findFirst()
+                        .orElse(null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonNode readTree(ObjectMapper mapper, String line) {
+        try {
+            return mapper.readTree(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String load(String fileName) {
+        for (String location : new String[] { "corpus/", "warmup/" }) {
+            try (InputStream in = Corpus.class.getClassLoader().getResourceAsStream(location + fileName)) {
+                if (in != null) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalArgumentException("No corpus sample " + fileName);
+    }
+}
@@ -0,0 +1,117 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.Role;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import com.mtsaas.backend.infrastructure.security.JwtAuthenticationFilter;
+import com.mtsaas.backend.infrastructure.security.JwtService;
+import com.mtsaas.backend.infrastructure.security.TokenBlacklistService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with a bearer token.
+ *
+ * {@code filter} runs the whole {@link JwtAuthenticationFilter} against an in-memory user repository;
+ * {@code parseOnce} is the verification it performs; {@code legacyTripleParse} reproduces the previous
+ * behaviour of decoding the key, building a parser and verifying the token three times per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "KHk5wgeFKL5wwlWn8bFdkuPdYCAumax8hrGMdBCGULY=";
+    private static final String EMAIL = "benchmark@example.com";
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "previousSecretKeys", "");
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpirationMs", TimeUnit.HOURS.toMillis(1));
+        jwtService.init();
+
+        User user = User.builder()
+                .id(UUID.randomUUID())
+                .email(EMAIL)
+                .passwordHash("unused")
+                .role(Role.USER)
+                .credits(5)
+                .emailVerified(true)
+                .build();
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(), new Class<?>[] { UserRepository.class },
+                (proxy, method, args) -> "findByEmail".equals(method.getName()) ? Optional.of(user) : null);
+
+        // No Redis: the revocation filter is treated as loaded and empty, so every check is answered locally
+        StringRedisTemplate redisTemplate = new StringRedisTemplate();
+        TokenBlacklistService blacklistService = new TokenBlacklistService(redisTemplate,
+                new RedisMessageListenerContainer());
+        ReflectionTestUtils.setField(blacklistService, "expectedInsertions", 100_000);
+        ReflectionTestUtils.setField(blacklistService, "falsePositiveRate", 0.01);
+        blacklistService.init();
+        ReflectionTestUtils.setField(blacklistService, "loaded", true);
+
+        filter = new JwtAuthenticationFilter(jwtService, userRepository, blacklistService);
+        token = jwtService.generateToken(EMAIL);
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/credits/balance");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Claims parseOnce() {
+        return jwtService.parseToken(token);
+    }
+
+    @Benchmark
+    public void legacyTripleParse(Blackhole blackhole) {
+        for (int i = 0; i < 3; i++) {
+            blackhole.consume(Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody());
+        }
+    }
+}
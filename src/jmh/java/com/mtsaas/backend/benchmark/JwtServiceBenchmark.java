@@ -0,0 +1,70 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.infrastructure.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and verifying access tokens, including a token signed with a previous key after a rotation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "KHk5wgeFKL5wwlWn8bFdkuPdYCAumax8hrGMdBCGULY=";
+    private static final String PREVIOUS_SECRET = "x0ZmTqGQ1mIYUk0m3vV2m0n3V6Ck3XyZHc9pDRVbG2c=";
+    private static final String EMAIL = "benchmark@example.com";
+
+    private JwtService jwtService;
+    private String token;
+    private String previousKeyToken;
+
+    @Setup
+    public void setUp() {
+        JwtService previous = jwtService(PREVIOUS_SECRET, "");
+        previousKeyToken = previous.generateToken(EMAIL);
+
+        jwtService = jwtService(SECRET, PREVIOUS_SECRET);
+        token = jwtService.generateToken(EMAIL);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(EMAIL);
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtService.parseToken(token);
+    }
+
+    @Benchmark
+    public Claims parsePreviousKeyToken() {
+        return jwtService.parseToken(previousKeyToken);
+    }
+
+    private static JwtService jwtService(String secret, String previousSecrets) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "previousSecretKeys", previousSecrets);
+        ReflectionTestUtils.setField(service, "accessTokenExpirationMs", TimeUnit.HOURS.toMillis(1));
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,58 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.swift.mt.Mt103Generator;
+import com.mtsaas.backend.domain.swift.mt.Mt202Generator;
+import com.mtsaas.backend.domain.swift.mt.Mt940Generator;
+import com.mtsaas.backend.domain.swift.mt.MtGenerator;
+import com.mtsaas.backend.domain.swift.mx.MxMessage;
+import com.mtsaas.backend.domain.swift.mx.MxParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MX to MT generation with every {@link MtGenerator}, one per MX sample.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MtGeneratorBenchmark {
+
+    private static final List<MtGenerator> GENERATORS = List.of(new Mt103Generator(), new Mt202Generator(),
+            new Mt940Generator());
+
+    @Param({ "pacs008-small", "pacs008-medium", "pacs008-large", "pacs009-small", "pacs009-large", "pacs009-cov",
+            "camt053-small", "camt053-large" })
+    private String sample;
+
+    private MxMessage message;
+    private MtGenerator generator;
+
+    @Setup
+    public void setUp() {
+        message = new MxParser().parse(Corpus.mx(sample));
+        generator = GENERATORS.stream()
+                .filter(candidate -> candidate.supports(message.getMessageType()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No MT generator for " + message.getMessageType()));
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate(message);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.swift.mt.MtMessage;
+import com.mtsaas.backend.domain.swift.mt.MtParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MtParser#parse} over every MT sample of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MtParserBenchmark {
+
+    @Param({ "mt103-small", "mt103-medium", "mt103-large", "mt202-small", "mt202-large", "mt202cov", "mt102",
+            "mt940-small", "mt940-large" })
+    private String sample;
+
+    private MtParser parser;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        parser = new MtParser();
+        content = Corpus.mt(sample);
+    }
+
+    @Benchmark
+    public MtMessage parse() {
+        return parser.parse(content);
+    }
+}
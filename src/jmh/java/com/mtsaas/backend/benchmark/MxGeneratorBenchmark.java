@@ -0,0 +1,79 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.swift.mt.MtMessage;
+import com.mtsaas.backend.domain.swift.mt.MtParser;
+import com.mtsaas.backend.domain.swift.mx.BaseMxGenerator;
+import com.mtsaas.backend.domain.swift.mx.Camt053Generator;
+import com.mtsaas.backend.domain.swift.mx.Mt102Generator;
+import com.mtsaas.backend.domain.swift.mx.Pacs008Generator;
+import com.mtsaas.backend.domain.swift.mx.Pacs009CovGenerator;
+import com.mtsaas.backend.domain.swift.mx.Pacs009Generator;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * MT to MX generation with every {@link com.mtsaas.backend.domain.swift.mx.MxGenerator}, one per MT sample.
+ *
+ * {@code generate} is what a conversion runs, including the XSD validation of the output where the
+ * generator does it; {@code generateUnvalidated} is the same generator without a validator, so the
+ * difference is the cost of validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MxGeneratorBenchmark {
+
+    private static final List<Supplier<BaseMxGenerator>> GENERATORS = List.of(Pacs008Generator::new,
+            Pacs009Generator::new, Pacs009CovGenerator::new, Mt102Generator::new, Camt053Generator::new);
+
+    @Param({ "mt103-small", "mt103-medium", "mt103-large", "mt202-small", "mt202-large", "mt202cov", "mt102",
+            "mt940-small", "mt940-large" })
+    private String sample;
+
+    private MtMessage message;
+    private BaseMxGenerator validating;
+    private BaseMxGenerator unvalidated;
+
+    @Setup
+    public void setUp() {
+        message = new MtParser().parse(Corpus.mt(sample));
+        validating = generatorFor(message.getType());
+        validating.setXmlValidator(new XmlValidator());
+        unvalidated = generatorFor(message.getType());
+    }
+
+    @Benchmark
+    public String generate() {
+        return validating.generate(message);
+    }
+
+    @Benchmark
+    public String generateUnvalidated() {
+        return unvalidated.generate(message);
+    }
+
+    private static BaseMxGenerator generatorFor(String mtType) {
+        return GENERATORS.stream()
+                .map(Supplier::get)
+                .filter(generator -> generator.supports(mtType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No MX generator for MT" + mtType));
+    }
+}
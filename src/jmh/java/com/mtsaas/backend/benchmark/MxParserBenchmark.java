@@ -0,0 +1,47 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.swift.mx.MxMessage;
+import com.mtsaas.backend.domain.swift.mx.MxParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MxParser#parse} over every MX sample of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MxParserBenchmark {
+
+    @Param({ "pacs008-small", "pacs008-medium", "pacs008-large", "pacs009-small", "pacs009-large", "pacs009-cov",
+            "camt053-small", "camt053-large" })
+    private String sample;
+
+    private MxParser parser;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        parser = new MxParser();
+        content = Corpus.mx(sample);
+    }
+
+    @Benchmark
+    public MxMessage parse() {
+        return parser.parse(content);
+    }
+}
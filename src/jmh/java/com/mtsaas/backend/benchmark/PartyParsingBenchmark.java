@@ -0,0 +1,64 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.domain.swift.mx.Pacs008Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BaseMxGenerator.parsePartyContent} on the party field shapes found in the corpus: free-format
+ * and structured (50F/59F) customers, and agents given by BIC with or without an account line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartyParsingBenchmark {
+
+    private static final Map<String, String> PARTIES = Map.of(
+            "customer-free", "/DE89370400440532013000\nACME MANUFACTURING GMBH\nHAUPTSTRASSE 12\n"
+                    + "60311 FRANKFURT AM MAIN\nDE",
+            "customer-structured", "/GB29NWBK60161331926819\n1/GLOBEX TRADING LIMITED\n2/1 CANADA SQUARE\n"
+                    + "3/GB/LONDON E14 5AB",
+            "agent-bic", "BANKDEFFXXX",
+            "agent-account-bic", "/12345678\nBANKGB2LXXX");
+
+    /** Exposes the protected parser of the generators' common base class. */
+    private static final class PartyParser extends Pacs008Generator {
+        Object parse(String content, boolean scanForBic) {
+            return parsePartyContent(content, scanForBic);
+        }
+    }
+
+    @Param({ "customer-free", "customer-structured", "agent-bic", "agent-account-bic" })
+    private String party;
+
+    private PartyParser parser;
+    private String content;
+    private boolean scanForBic;
+
+    @Setup
+    public void setUp() {
+        parser = new PartyParser();
+        content = PARTIES.get(party);
+        scanForBic = party.startsWith("agent");
+    }
+
+    @Benchmark
+    public Object parse() {
+        return parser.parse(content, scanForBic);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mtsaas.backend.benchmark;
+
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XmlValidator#validate} of the pacs samples against their XSD (the only schemas shipped).
+ *
+ * The pacs.009 generator does not validate its output, and the larger pacs.009 samples do not pass
+ * the schema, so only the small one is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlValidatorBenchmark {
+
+    @Param({ "pacs008-small", "pacs008-medium", "pacs008-large", "pacs009-small" })
+    private String sample;
+
+    private XmlValidator validator;
+    private String content;
+    private String xsdPath;
+
+    @Setup
+    public void setUp() {
+        validator = new XmlValidator();
+        content = Corpus.mx(sample);
+        xsdPath = sample.startsWith("pacs008") ? "xsd/pacs.008.001.08.xsd" : "xsd/pacs.009.001.08.xsd";
+        validator.validate(content, xsdPath);
+    }
+
+    @Benchmark
+    public String validate() {
+        validator.validate(content, xsdPath);
+        return content;
+    }
+}
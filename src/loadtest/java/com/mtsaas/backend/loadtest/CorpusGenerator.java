@@ -0,0 +1,244 @@
+package com.mtsaas.backend.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mtsaas.backend.domain.swift.mt.MtMessage;
+import com.mtsaas.backend.domain.swift.mt.MtParser;
+import com.mtsaas.backend.domain.swift.mx.BaseMxGenerator;
+import com.mtsaas.backend.domain.swift.mx.Camt053Generator;
+import com.mtsaas.backend.domain.swift.mx.Mt102Generator;
+import com.mtsaas.backend.domain.swift.mx.Pacs008Generator;
+import com.mtsaas.backend.domain.swift.mx.Pacs009CovGenerator;
+import com.mtsaas.backend.domain.swift.mx.Pacs009Generator;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a synthetic corpus of MT messages ({@link SyntheticMessages}) together with the MX each one
+ * converts to, for the benchmarks, the load test ({@code --corpus}) and bulk imports.
+ *
+ * The MX side is the {@code Document} produced by the application's own generator for the MT, checked
+ * against the message XSD where one is bundled; messages whose MX fails are kept without one. As the
+ * generators map a single {@code :61:} line or MT102 transaction, the camt.053 and bulk pacs.008
+ * counterparts of large statements and batches are small.
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:exec@generate-corpus -Dcorpus.args="--count=10000 --mt940-entries=10-100000"
+ * </pre>
+ *
+ * Options: {@code --count} (1000), {@code --mix} (type weights, default
+ * {@code MT103:50,MT202:15,MT202COV:10,MT102:10,MT940:15}), {@code --mt940-entries} (10-1000),
+ * {@code --mt102-transactions} (2-50), {@code --remittance-lines} (0-4), {@code --seed} (42),
+ * {@code --mx} (true) and {@code --output} ({@code target/corpus/corpus.ndjson}; a {@code .zip} name
+ * writes {@code mt/<id>.txt} and {@code mx/<id>.xml} files plus {@code index.ndjson}). Sizes are drawn
+ * log-uniformly from their ranges.
+ */
+public final class CorpusGenerator {
+
+    static final String MT_DIRECTORY = "mt/";
+    static final String MX_DIRECTORY = "mx/";
+
+    private static final Pattern MX_TYPE = Pattern.compile(
+            "urn:iso:std:iso:20022:tech:xsd:([a-z]{4}\\.\\d{3}\\.\\d{3}\\.\\d{2})");
+    private static final List<Supplier<BaseMxGenerator>> GENERATORS = List.of(Pacs008Generator::new,
+            Pacs009Generator::new, Pacs009CovGenerator::new, Mt102Generator::new, Camt053Generator::new);
+
+    /**
+     * One corpus message; {@code mx} and {@code mxType} are null when no valid MX could be produced.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(String id, String mtType, int items, String mt, String mxType, String mx) {
+    }
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int count = Integer.parseInt(options.getOrDefault("count", "1000"));
+        Map<String, Integer> mix = weights(options.getOrDefault("mix",
+                "MT103:50,MT202:15,MT202COV:10,MT102:10,MT940:15"));
+        int[] statementEntries = range(options.getOrDefault("mt940-entries", "10-1000"));
+        int[] batchTransactions = range(options.getOrDefault("mt102-transactions", "2-50"));
+        int[] remittanceLines = range(options.getOrDefault("remittance-lines", "0-4"));
+        boolean withMx = Boolean.parseBoolean(options.getOrDefault("mx", "true"));
+        Path output = Path.of(options.getOrDefault("output", "target/corpus/corpus.ndjson"));
+
+        SyntheticMessages messages = new SyntheticMessages(Long.parseLong(options.getOrDefault("seed", "42")));
+        MtParser parser = new MtParser();
+        XmlValidator validator = new XmlValidator();
+        Map<String, BaseMxGenerator> generators = new TreeMap<>();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        Map<String, Integer> written = new TreeMap<>();
+        Map<String, Integer> withoutMx = new TreeMap<>();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (CorpusWriter writer = CorpusWriter.open(output)) {
+            for (int i = 1; i <= count; i++) {
+                String type = pickType(mix, totalWeight, messages.random().nextInt(totalWeight));
+                int lines = messages.size(remittanceLines[0], remittanceLines[1]);
+                int items = 1;
+                String mt = switch (type) {
+                    case "MT103" -> messages.mt103(lines);
+                    case "MT202" -> messages.mt202(false, lines);
+                    case "MT202COV" -> messages.mt202(true, lines);
+                    case "MT102" -> messages.mt102(items = messages.size(batchTransactions[0],
+                            batchTransactions[1]), lines);
+                    case "MT940" -> messages.mt940(items = messages.size(statementEntries[0], statementEntries[1]));
+                    default -> throw new IllegalArgumentException("Unsupported type " + type
+                            + ", expected MT103, MT202, MT202COV, MT102 or MT940");
+                };
+                String id = String.format(Locale.ROOT, "%s-%07d", type.toLowerCase(Locale.ROOT), i);
+                String mx = null;
+                String mxType = null;
+                if (withMx) {
+                    MtMessage message = parser.parse(mt);
+                    BaseMxGenerator generator = generators.computeIfAbsent(message.getType(),
+                            CorpusGenerator::generatorFor);
+                    try {
+                        mx = extractDocument(generator.generate(message));
+                        Matcher matcher = MX_TYPE.matcher(mx);
+                        mxType = matcher.find() ? matcher.group(1) : null;
+                        if (mxType != null && validator.hasSchema("xsd/" + mxType + ".xsd")) {
+                            validator.validate(mx, "xsd/" + mxType + ".xsd");
+                        }
+                    } catch (RuntimeException e) {
+                        mx = null;
+                        mxType = null;
+                        withoutMx.merge(type, 1, Integer::sum);
+                    }
+                }
+                writer.write(new Entry(id, type, items, mt, mxType, mx));
+                written.merge(type, 1, Integer::sum);
+            }
+        }
+        System.out.printf("Wrote %d messages to %s (%,d bytes): %s%n", count, output, Files.size(output), written);
+        if (!withoutMx.isEmpty()) {
+            System.out.println("Without a valid MX counterpart: " + withoutMx);
+        }
+    }
+
+    private static BaseMxGenerator generatorFor(String mtType) {
+        return GENERATORS.stream()
+                .map(Supplier::get)
+                .filter(generator -> generator.supports(mtType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No MX generator for MT" + mtType));
+    }
+
+    private static String extractDocument(String xml) {
+        int start = xml.indexOf("<Document");
+        int end = xml.indexOf("</Document>");
+        return start >= 0 && end > start ? xml.substring(start, end + "</Document>".length()) + "\n" : xml;
+    }
+
+    private static String pickType(Map<String, Integer> mix, int totalWeight, int draw) {
+        int cumulative = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            cumulative += entry.getValue();
+            if (draw < cumulative) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Weights do not add up to " + totalWeight);
+    }
+
+    private static Map<String, Integer> weights(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] typeAndWeight = part.trim().split(":");
+            weights.put(typeAndWeight[0].toUpperCase(Locale.ROOT),
+                    typeAndWeight.length > 1 ? Integer.parseInt(typeAndWeight[1]) : 1);
+        }
+        return weights;
+    }
+
+    private static int[] range(String value) {
+        String[] bounds = value.split("-");
+        int min = Integer.parseInt(bounds[0].trim());
+        int max = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : min;
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid range " + value);
+        }
+        return new int[] { min, max };
+    }
+
+    /**
+     * NDJSON file with one {@link Entry} per line, or ZIP with the messages as files and the entries
+     * (without message bodies) in {@code index.ndjson}.
+     */
+    private interface CorpusWriter extends AutoCloseable {
+
+        void write(Entry entry) throws IOException;
+
+        @Override
+        void close() throws IOException;
+
+        static CorpusWriter open(Path output) throws IOException {
+            ObjectMapper mapper = new ObjectMapper();
+            if (!output.toString().endsWith(".zip")) {
+                BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+                return new CorpusWriter() {
+                    @Override
+                    public void write(Entry entry) throws IOException {
+                        out.write(mapper.writeValueAsString(entry));
+                        out.newLine();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        out.close();
+                    }
+                };
+            }
+            ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(output));
+            StringBuilder index = new StringBuilder();
+            return new CorpusWriter() {
+                @Override
+                public void write(Entry entry) throws IOException {
+                    add(zip, MT_DIRECTORY + entry.id() + ".txt", entry.mt());
+                    if (entry.mx() != null) {
+                        add(zip, MX_DIRECTORY + entry.id() + ".xml", entry.mx());
+                    }
+                    index.append(mapper.writeValueAsString(new Entry(entry.id(), entry.mtType(), entry.items(),
+                            null, entry.mxType(), null))).append('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    add(zip, "index.ndjson", index.toString());
+                    zip.close();
+                }
+            };
+        }
+
+        private static void add(ZipOutputStream zip, String name, String content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.mtsaas.backend.loadtest;
+
+import com.mtsaas.backend.MtSaasApplication;
+import com.mtsaas.backend.domain.CreditPurchase;
+import com.mtsaas.backend.domain.Role;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.infrastructure.repository.CreditPurchaseRepository;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Concurrency torture test of the credit ledger and the anonymous quota.
+ *
+ * Starts the {@link LocalStandIns} and boots several application instances against the same database
+ * and Redis, each with its own connection pool and caches, as separate nodes would have. One account
+ * is seeded with a known balance spread over direct credits, several purchases and one purchase that
+ * has already expired. Far more conversions than the balance covers are then released at once for that
+ * account, round-robin over the instances, followed by a burst of anonymous conversions from a handful
+ * of client addresses. Afterwards the database is checked for:
+ *
+ * <ul>
+ * <li>exactly as many successful conversions as credits were available (no overselling, no lost
+ * deduction), and an {@code INSUFFICIENT_CREDITS} conversion row for every 402;</li>
+ * <li>one ledger entry per successful conversion, each pointing at a distinct successful conversion;</li>
+ * <li>no negative balance or purchase, direct credits spent first, the expired purchase untouched and
+ * the remaining balance equal to the seeded balance minus the ledger total;</li>
+ * <li>exactly one successful anonymous conversion per client address.</li>
+ * </ul>
+ *
+ * Throughput of the deduction path and the end-to-end and bookkeeping ({@code Server-Timing: db})
+ * latencies are printed and appended to {@code target/loadtest/torture.csv}. The process exits with
+ * status 1 if any invariant is violated.
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:exec@torture -Dtorture.args="--instances=3 --requests=5000 --credits=1500"
+ * </pre>
+ *
+ * Options: {@code --instances} (3), {@code --concurrency} (64), {@code --requests} (4000),
+ * {@code --credits} (1000, seeded balance), {@code --anonymous-requests} (1000),
+ * {@code --anonymous-addresses} (20), {@code --bookkeeping} ({@code function}, or {@code jpa} to drop
+ * the {@code record_conversion} function and exercise the repository fallback) and {@code --label}.
+ * The adaptive conversion limiter is disabled so every request reaches the ledger; {@code --spring...},
+ * {@code --app...} and similar options are passed to every instance as in {@link LoadTest}.
+ */
+public final class CreditTorture {
+
+    private static final String EMAIL = "torture@example.com";
+    private static final String PASSWORD = "Torture-Password-1";
+    private static final long EXPIRED_PURCHASE = 500;
+    private static final List<String> APPLICATION_PREFIXES = List.of("--spring.", "--app.", "--server.",
+            "--management.", "--lemon-squeezy.", "--sendgrid.", "--logging.");
+    private static final Pattern DB_TIMING = Pattern.compile("db;dur=([0-9.]+)");
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private CreditTorture() {
+    }
+
+    /**
+     * Outcome of one burst of requests.
+     */
+    record Burst(String name, int requests, long elapsedNanos, Map<Integer, Long> statuses, Histogram latencies,
+            Histogram bookkeeping) {
+
+        long count(int status) {
+            return statuses.getOrDefault(status, 0L);
+        }
+
+        double throughput(int status) {
+            return count(status) / (elapsedNanos / 1e9);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        applicationArgs.add("--app.concurrency.conversion.enabled=false");
+        for (String arg : args) {
+            if (APPLICATION_PREFIXES.stream().anyMatch(arg::startsWith)) {
+                applicationArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else if (!arg.isBlank()) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        int instanceCount = Integer.parseInt(options.getOrDefault("instances", "3"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "4000"));
+        long credits = Long.parseLong(options.getOrDefault("credits", "1000"));
+        int anonymousRequests = Integer.parseInt(options.getOrDefault("anonymous-requests", "1000"));
+        int anonymousAddresses = Integer.parseInt(options.getOrDefault("anonymous-addresses", "20"));
+        String bookkeeping = options.getOrDefault("bookkeeping", "function");
+        String label = options.getOrDefault("label", "default");
+        if (!bookkeeping.equals("function") && !bookkeeping.equals("jpa")) {
+            throw new IllegalArgumentException("--bookkeeping must be function or jpa");
+        }
+
+        List<String> violations = new ArrayList<>();
+        try (LocalStandIns standIns = LocalStandIns.start(0)) {
+            List<String> bootArgs = new ArrayList<>();
+            standIns.applicationProperties().forEach((key, value) -> bootArgs.add("--" + key + "=" + value));
+            bootArgs.addAll(applicationArgs);
+
+            // Started one after the other: the first one creates the schema the others validate against
+            List<ConfigurableApplicationContext> instances = new ArrayList<>();
+            List<Scenarios> scenarios = new ArrayList<>();
+            try {
+                for (int i = 0; i < instanceCount; i++) {
+                    SpringApplication application = new SpringApplication(MtSaasApplication.class);
+                    application.setAdditionalProfiles("loadtest");
+                    ConfigurableApplicationContext context = application.run(bootArgs.toArray(String[]::new));
+                    instances.add(context);
+                    scenarios.add(new Scenarios("http://127.0.0.1:"
+                            + context.getEnvironment().getProperty("local.server.port")));
+                }
+                ConfigurableApplicationContext first = instances.get(0);
+                JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+                if (bookkeeping.equals("jpa")) {
+                    jdbc.execute("DROP FUNCTION IF EXISTS record_conversion");
+                }
+
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .executor(Executors.newCachedThreadPool())
+                        .build();
+                Seed seed = seed(first, credits);
+                VirtualUser user = new VirtualUser(EMAIL, PASSWORD);
+                HttpResponse<String> login = client.send(scenarios.get(0).login(user),
+                        HttpResponse.BodyHandlers.ofString());
+                Scenarios.keepSession(user, login);
+                if (user.accessToken == null) {
+                    throw new IllegalStateException("Login failed with " + login.statusCode() + ": " + login.body());
+                }
+
+                System.out.printf("Seeded %d credits (%d direct, %s purchased, %d expired); sending %d conversions"
+                                + " over %d instances at concurrency %d with %s bookkeeping%n", seed.available(),
+                        seed.direct(), seed.purchases(), EXPIRED_PURCHASE, requests, instanceCount, concurrency,
+                        bookkeeping);
+                Burst charged = burst("credits", client, concurrency, requests,
+                        i -> scenarios.get(i % instanceCount).mtToMx(user, i));
+                print(charged);
+                checkCredits(jdbc, seed, charged, violations);
+
+                Burst anonymous = burst("anonymous", client, concurrency, anonymousRequests,
+                        i -> scenarios.get(i % instanceCount).anonymousMtToMx(
+                                "192.0.2." + (1 + i % anonymousAddresses), i));
+                print(anonymous);
+                checkAnonymous(jdbc, anonymousAddresses, anonymousRequests, anonymous, violations);
+
+                append(Path.of("target", "loadtest", "torture.csv"), label, instanceCount, concurrency, bookkeeping,
+                        List.of(charged, anonymous), violations.isEmpty());
+            } finally {
+                for (ConfigurableApplicationContext context : instances) {
+                    context.close();
+                }
+            }
+        }
+
+        if (violations.isEmpty()) {
+            System.out.println("All invariants hold");
+            System.exit(0);
+        }
+        violations.forEach(violation -> System.out.println("VIOLATED: " + violation));
+        System.exit(1);
+    }
+
+    private record Seed(UUID id, long direct, List<Long> purchases, long available) {
+    }
+
+    /**
+     * Creates the account with a quarter of the balance as direct credits and the rest in three purchases
+     * expiring at different times, plus one purchase that expired yesterday but is not yet marked so.
+     */
+    private static Seed seed(ConfigurableApplicationContext context, long credits) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        CreditPurchaseRepository purchaseRepository = context.getBean(CreditPurchaseRepository.class);
+        long direct = credits / 4;
+        User user = userRepository.save(User.builder()
+                .email(EMAIL)
+                .passwordHash(context.getBean(PasswordEncoder.class).encode(PASSWORD))
+                .role(Role.USER)
+                .credits(direct)
+                .emailVerified(true)
+                .provider("LOCAL")
+                .build());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> purchases = new ArrayList<>();
+        long left = credits - direct;
+        for (int i = 0; i < 3; i++) {
+            long amount = i < 2 ? left / 3 : left - purchases.get(0) - purchases.get(1);
+            purchases.add(amount);
+            purchaseRepository.save(purchase(user, amount, "torture-" + i, now.plusDays(30L * (3 - i))));
+        }
+        purchaseRepository.save(purchase(user, EXPIRED_PURCHASE, "torture-expired", now.minusDays(1)));
+        return new Seed(user.getId(), direct, purchases, credits);
+    }
+
+    private static CreditPurchase purchase(User user, long amount, String transactionId, LocalDateTime expiry) {
+        return CreditPurchase.builder()
+                .user(user)
+                .creditAmount(amount)
+                .transactionId(transactionId)
+                .purchasedAt(LocalDateTime.now())
+                .expiryDate(expiry)
+                .build();
+    }
+
+    /**
+     * Sends {@code requests} requests from {@code concurrency} threads, all released at the same moment.
+     */
+    private static Burst burst(String name, HttpClient client, int concurrency, int requests,
+            IntFunction<HttpRequest> request) throws InterruptedException {
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        Histogram bookkeeping = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<HttpRequest> prepared = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            prepared.add(request.apply(i));
+        }
+        for (HttpRequest next : prepared) {
+            clients.execute(() -> {
+                try {
+                    start.await();
+                    long begin = System.nanoTime();
+                    HttpResponse<String> response = client.send(next, HttpResponse.BodyHandlers.ofString());
+                    latencies.recordValue(Math.min(System.nanoTime() - begin, MAX_LATENCY_NANOS));
+                    statuses.computeIfAbsent(response.statusCode(), key -> new LongAdder()).increment();
+                    response.headers().firstValue("Server-Timing").map(DB_TIMING::matcher).filter(Matcher::find)
+                            .ifPresent(matcher -> bookkeeping.recordValue(Math.min(
+                                    (long) (Double.parseDouble(matcher.group(1)) * 1_000_000), MAX_LATENCY_NANOS)));
+                } catch (IOException e) {
+                    statuses.computeIfAbsent(-1, key -> new LongAdder()).increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        clients.shutdown();
+        if (!clients.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(name + " burst did not finish in 10 minutes");
+        }
+        long elapsed = System.nanoTime() - begin;
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return new Burst(name, requests, elapsed, counts, latencies, bookkeeping);
+    }
+
+    private static void checkCredits(JdbcTemplate jdbc, Seed seed, Burst burst, List<String> violations) {
+        long expected = Math.min(burst.requests(), seed.available());
+        expect(violations, "only 200 and 402 responses", burst.count(200) + burst.count(402), burst.requests());
+        expect(violations, "successful conversions", burst.count(200), expected);
+
+        expect(violations, "SUCCESS conversion rows", count(jdbc,
+                "SELECT count(*) FROM conversions WHERE user_id = ? AND status = 'SUCCESS'", seed.id()),
+                burst.count(200));
+        expect(violations, "INSUFFICIENT_CREDITS conversion rows", count(jdbc,
+                "SELECT count(*) FROM conversions WHERE user_id = ? AND status = 'FAILED'"
+                        + " AND error_message = 'INSUFFICIENT_CREDITS'", seed.id()),
+                burst.count(402));
+
+        long ledgerEntries = count(jdbc, "SELECT count(*) FROM credit_usage WHERE user_id = ?", seed.id());
+        long ledgerTotal = count(jdbc,
+                "SELECT coalesce(sum(credits_used), 0) FROM credit_usage WHERE user_id = ?", seed.id());
+        expect(violations, "ledger entries", ledgerEntries, burst.count(200));
+        expect(violations, "ledger total", ledgerTotal, burst.count(200));
+        expect(violations, "ledger entries for distinct successful conversions", count(jdbc,
+                "SELECT count(DISTINCT cu.conversion_id) FROM credit_usage cu JOIN conversions c"
+                        + " ON c.id = cu.conversion_id AND c.status = 'SUCCESS' AND c.user_id = cu.user_id"
+                        + " WHERE cu.user_id = ?", seed.id()), ledgerEntries);
+
+        long direct = count(jdbc, "SELECT credits FROM users WHERE id = ?", seed.id());
+        long negative = count(jdbc,
+                "SELECT count(*) FROM credit_purchases WHERE user_id = ? AND credit_amount < 0", seed.id());
+        long purchased = count(jdbc, "SELECT coalesce(sum(credit_amount), 0) FROM credit_purchases"
+                + " WHERE user_id = ? AND expiry_date > localtimestamp", seed.id());
+        long expired = count(jdbc, "SELECT coalesce(sum(credit_amount), 0) FROM credit_purchases"
+                + " WHERE user_id = ? AND expiry_date <= localtimestamp", seed.id());
+        if (direct < 0) {
+            violations.add("direct credits are negative: " + direct);
+        }
+        expect(violations, "negative purchases", negative, 0);
+        expect(violations, "direct credits left", direct, Math.max(0, seed.direct() - ledgerTotal));
+        expect(violations, "expired purchase untouched", expired, EXPIRED_PURCHASE);
+        expect(violations, "remaining balance", direct + purchased, seed.available() - ledgerTotal);
+        System.out.printf("  ledger: %d entries, %d credits; left %d direct + %d purchased%n", ledgerEntries,
+                ledgerTotal, direct, purchased);
+    }
+
+    private static void checkAnonymous(JdbcTemplate jdbc, int addresses, int requests, Burst burst,
+            List<String> violations) {
+        long used = Math.min(addresses, requests);
+        expect(violations, "only 200 and 403 anonymous responses", burst.count(200) + burst.count(403), requests);
+        expect(violations, "successful anonymous conversions", burst.count(200), used);
+        expect(violations, "addresses with one successful anonymous conversion", count(jdbc,
+                "SELECT count(*) FROM (SELECT ip_address FROM conversions WHERE user_id IS NULL"
+                        + " AND status = 'SUCCESS' GROUP BY ip_address HAVING count(*) = 1) one"), used);
+        expect(violations, "successful anonymous conversion rows", count(jdbc,
+                "SELECT count(*) FROM conversions WHERE user_id IS NULL AND status = 'SUCCESS'"), used);
+        expect(violations, "ANONYMOUS_LIMIT_REACHED conversion rows", count(jdbc,
+                "SELECT count(*) FROM conversions WHERE user_id IS NULL AND status = 'FAILED'"
+                        + " AND error_message = 'ANONYMOUS_LIMIT_REACHED'"), burst.count(403));
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql, Object... args) {
+        Long value = jdbc.queryForObject(sql, Long.class, args);
+        return value != null ? value : 0;
+    }
+
+    private static void expect(List<String> violations, String what, long actual, long expected) {
+        if (actual != expected) {
+            violations.add(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static void print(Burst burst) {
+        System.out.printf(Locale.ROOT, "  %-10s %6d req in %6.2f s  %8.1f req/s  %8.1f ok/s  p50 %8.2f ms"
+                        + "  p99 %8.2f ms  max %8.2f ms  db p50 %6.2f ms  db p99 %6.2f ms  %s%n",
+                burst.name(), burst.requests(), burst.elapsedNanos() / 1e9,
+                burst.requests() / (burst.elapsedNanos() / 1e9), burst.throughput(200),
+                millis(burst.latencies(), 50), millis(burst.latencies(), 99),
+                burst.latencies().getMaxValue() / 1_000_000.0, millis(burst.bookkeeping(), 50),
+                millis(burst.bookkeeping(), 99), burst.statuses());
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+
+    private static void append(Path file, String label, int instances, int concurrency, String bookkeeping,
+            List<Burst> bursts, boolean passed) throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean header = !Files.exists(file);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+            if (header) {
+                out.println("time,label,burst,instances,concurrency,bookkeeping,requests,ok,throughput,ok_per_s,"
+                        + "p50_ms,p99_ms,max_ms,db_p50_ms,db_p99_ms,passed");
+            }
+            String time = Instant.now().toString();
+            for (Burst burst : bursts) {
+                out.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%s,%d,%d,%.1f,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%s%n", time,
+                        label, burst.name(), instances, concurrency, bookkeeping, burst.requests(), burst.count(200),
+                        burst.requests() / (burst.elapsedNanos() / 1e9), burst.throughput(200),
+                        millis(burst.latencies(), 50), millis(burst.latencies(), 99),
+                        burst.latencies().getMaxValue() / 1_000_000.0, millis(burst.bookkeeping(), 50),
+                        millis(burst.bookkeeping(), 99), passed);
+            }
+        }
+        System.out.println("Results appended to " + file);
+    }
+}
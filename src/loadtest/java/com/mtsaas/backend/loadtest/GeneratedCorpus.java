@@ -0,0 +1,57 @@
+package com.mtsaas.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Messages of a corpus written by {@link CorpusGenerator}, read back from its NDJSON or ZIP form.
+ */
+record GeneratedCorpus(List<String> mtMessages, List<String> mxMessages) {
+
+    static GeneratedCorpus read(Path file) throws IOException {
+        List<String> mt = new ArrayList<>();
+        List<String> mx = new ArrayList<>();
+        if (file.toString().endsWith(".zip")) {
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.getName().startsWith(CorpusGenerator.MT_DIRECTORY)) {
+                        mt.add(new String(zip.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8));
+                    } else if (entry.getName().startsWith(CorpusGenerator.MX_DIRECTORY)) {
+                        mx.add(new String(zip.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        } else {
+            ObjectMapper mapper = new ObjectMapper();
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    CorpusGenerator.Entry entry = mapper.readValue(line, CorpusGenerator.Entry.class);
+                    mt.add(entry.mt());
+                    if (entry.mx() != null) {
+                        mx.add(entry.mx());
+                    }
+                }
+            }
+        }
+        if (mt.isEmpty()) {
+            throw new IllegalArgumentException("No messages in " + file);
+        }
+        return new GeneratedCorpus(mt, mx);
+    }
+}
@@ -0,0 +1,114 @@
+package com.mtsaas.backend.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives one scenario with a fixed number of concurrent clients (closed model: each client sends its
+ * next request as soon as the previous one completes) and records latencies in an HDR histogram.
+ *
+ * Requests completed during the warm-up are not recorded. As in any closed model, a stall slows the
+ * clients down instead of queueing more requests, so tail latencies under overload are understated;
+ * compare runs at the same concurrency.
+ */
+final class LoadRunner {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final HttpClient client;
+    private final List<VirtualUser> users;
+
+    LoadRunner(HttpClient client, List<VirtualUser> users) {
+        this.client = client;
+        this.users = users;
+    }
+
+    Result run(Scenario scenario, int concurrency, Duration warmUp, Duration duration) throws InterruptedException {
+        Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + warmUp.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            VirtualUser user = users.get(i % users.size());
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    long start = System.nanoTime();
+                    String outcome = send(scenario, user);
+                    long end = System.nanoTime();
+                    if (start >= measureFrom && end <= deadline) {
+                        recorder.recordValue(Math.min(end - start, MAX_LATENCY_NANOS));
+                        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(warmUp.plus(duration).toSeconds() + 150, TimeUnit.SECONDS)) {
+            clients.shutdownNow();
+        }
+
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return new Result(scenario.name(), concurrency, duration, recorder.getIntervalHistogram(), counts);
+    }
+
+    private String send(Scenario scenario, VirtualUser user) {
+        try {
+            HttpResponse<String> response = client.send(scenario.request().apply(user),
+                    HttpResponse.BodyHandlers.ofString());
+            scenario.onResponse().accept(user, response);
+            return String.valueOf(response.statusCode());
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    /**
+     * Outcome of one scenario run; {@code outcomes} counts responses by status code or exception name.
+     */
+    record Result(String scenario, int concurrency, Duration duration, Histogram latencies,
+            Map<String, Long> outcomes) {
+
+        long requests() {
+            return latencies.getTotalCount();
+        }
+
+        long errors() {
+            return outcomes.entrySet().stream()
+                    .filter(entry -> !entry.getKey().startsWith("2"))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        double throughput() {
+            return requests() / (duration.toMillis() / 1000.0);
+        }
+
+        double errorRate() {
+            return requests() == 0 ? 0 : (double) errors() / requests();
+        }
+
+        double percentileMs(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+}
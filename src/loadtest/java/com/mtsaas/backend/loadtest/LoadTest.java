@@ -0,0 +1,191 @@
+package com.mtsaas.backend.loadtest;
+
+import com.mtsaas.backend.MtSaasApplication;
+import com.mtsaas.backend.domain.Role;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test on a developer machine.
+ *
+ * Starts the {@link LocalStandIns}, boots the application against them with the {@code loadtest}
+ * profile, seeds verified accounts with plenty of credits and drives each selected {@link Scenarios
+ * scenario} in turn at a fixed concurrency. Prints throughput, p50/p99/p99.9 latency and error rate per
+ * scenario and appends them to {@code target/loadtest/results.csv} under the run's label, so runs with
+ * different pool sizes or caches can be compared:
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:exec -Dloadtest.args="--concurrency=32 --duration=30s --label=pool-20 \
+ *     --spring.datasource.hikari.maximum-pool-size=20"
+ * </pre>
+ *
+ * Options: {@code --scenarios} (comma-separated, default all), {@code --concurrency} (32),
+ * {@code --warmup} (10s), {@code --duration} (30s), {@code --users} (at least the concurrency),
+ * {@code --stub-latency-ms} (50, delay of the SendGrid and Lemon Squeezy stubs), {@code --corpus} (an
+ * NDJSON or ZIP file from {@link CorpusGenerator} to convert instead of the benchmark samples) and
+ * {@code --label}.
+ * Any {@code --spring...}, {@code --app...}, {@code --server...} or {@code --management...} option is
+ * passed to the application. The load generator runs in the same JVM, so on a small machine it competes
+ * with the application for CPU.
+ */
+public final class LoadTest {
+
+    private static final String PASSWORD = "LoadTest-Password-1";
+    private static final List<String> APPLICATION_PREFIXES = List.of("--spring.", "--app.", "--server.",
+            "--management.", "--lemon-squeezy.", "--sendgrid.", "--logging.");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (APPLICATION_PREFIXES.stream().anyMatch(arg::startsWith)) {
+                applicationArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else if (!arg.isBlank()) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int userCount = Math.max(concurrency, Integer.parseInt(options.getOrDefault("users", "0")));
+        Duration warmUp = duration(options.getOrDefault("warmup", "10s"));
+        Duration duration = duration(options.getOrDefault("duration", "30s"));
+        int stubLatencyMs = Integer.parseInt(options.getOrDefault("stub-latency-ms", "50"));
+        String label = options.getOrDefault("label", "default");
+
+        try (LocalStandIns standIns = LocalStandIns.start(stubLatencyMs)) {
+            List<String> bootArgs = new ArrayList<>();
+            standIns.applicationProperties().forEach((key, value) -> bootArgs.add("--" + key + "=" + value));
+            bootArgs.addAll(applicationArgs);
+
+            SpringApplication application = new SpringApplication(MtSaasApplication.class);
+            application.setAdditionalProfiles("loadtest");
+            try (ConfigurableApplicationContext context = application.run(bootArgs.toArray(String[]::new))) {
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .executor(Executors.newCachedThreadPool())
+                        .build();
+                Scenarios scenarios = options.containsKey("corpus")
+                        ? new Scenarios(baseUrl, GeneratedCorpus.read(Path.of(options.get("corpus"))))
+                        : new Scenarios(baseUrl);
+                List<VirtualUser> users = seedUsers(context, client, scenarios, userCount);
+
+                Map<String, Scenario> available = scenarios.all();
+                List<String> selected = options.containsKey("scenarios")
+                        ? Arrays.asList(options.get("scenarios").split(","))
+                        : new ArrayList<>(available.keySet());
+                LoadRunner runner = new LoadRunner(client, users);
+                List<LoadRunner.Result> results = new ArrayList<>();
+                for (String name : selected) {
+                    Scenario scenario = available.get(name.trim());
+                    if (scenario == null) {
+                        throw new IllegalArgumentException("Unknown scenario " + name + ", expected one of "
+                                + available.keySet());
+                    }
+                    System.out.printf("Running %s at concurrency %d for %s (+%s warm-up)%n", scenario.name(),
+                            concurrency, duration, warmUp);
+                    LoadRunner.Result result = runner.run(scenario, concurrency, warmUp, duration);
+                    results.add(result);
+                    print(result);
+                }
+                System.out.printf("Stubs: %d emails accepted, %d checkouts created%n", standIns.mailsAccepted(),
+                        standIns.checkoutsCreated());
+                append(Path.of("target", "loadtest", "results.csv"), label, applicationArgs, results);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static List<VirtualUser> seedUsers(ConfigurableApplicationContext context, HttpClient client,
+            Scenarios scenarios, int count) throws IOException, InterruptedException {
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<VirtualUser> users = new ArrayList<>();
+        List<User> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            VirtualUser user = new VirtualUser("loadtest-user-" + i + "@example.com", PASSWORD);
+            // Start each user at a different message so the corpus is spread across clients
+            user.sequence = i;
+            users.add(user);
+            if (userRepository.findByEmail(user.email).isEmpty()) {
+                accounts.add(User.builder()
+                        .email(user.email)
+                        .passwordHash(passwordHash)
+                        .role(Role.USER)
+                        .credits(1_000_000_000L)
+                        .emailVerified(true)
+                        .provider("LOCAL")
+                        .build());
+            }
+        }
+        userRepository.saveAll(accounts);
+        for (VirtualUser user : users) {
+            HttpResponse<String> response = client.send(scenarios.login(user), HttpResponse.BodyHandlers.ofString());
+            Scenarios.keepSession(user, response);
+            if (user.accessToken == null) {
+                throw new IllegalStateException("Login of " + user.email + " failed with " + response.statusCode()
+                        + ": " + response.body());
+            }
+        }
+        return users;
+    }
+
+    private static void print(LoadRunner.Result result) {
+        System.out.printf(Locale.ROOT, "  %-20s %8d req %9.1f req/s  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms"
+                        + "  max %8.2f ms  errors %6.2f%%  %s%n",
+                result.scenario(), result.requests(), result.throughput(), result.percentileMs(50),
+                result.percentileMs(99), result.percentileMs(99.9), result.latencies().getMaxValue() / 1_000_000.0,
+                result.errorRate() * 100, result.outcomes());
+    }
+
+    private static void append(Path file, String label, List<String> applicationArgs,
+            List<LoadRunner.Result> results) throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean header = !Files.exists(file);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+            if (header) {
+                out.println("time,label,scenario,concurrency,requests,throughput,p50_ms,p99_ms,p999_ms,max_ms,"
+                        + "error_rate,settings");
+            }
+            String time = Instant.now().toString();
+            for (LoadRunner.Result result : results) {
+                out.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.4f,\"%s\"%n", time, label,
+                        result.scenario(), result.concurrency(), result.requests(), result.throughput(),
+                        result.percentileMs(50), result.percentileMs(99), result.percentileMs(99.9),
+                        result.latencies().getMaxValue() / 1_000_000.0, result.errorRate(),
+                        String.join(" ", applicationArgs));
+            }
+        }
+        System.out.println("Results appended to " + file);
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+    }
+}
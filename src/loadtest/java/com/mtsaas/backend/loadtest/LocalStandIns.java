@@ -0,0 +1,126 @@
+package com.mtsaas.backend.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local replacements for everything the application talks to: an embedded PostgreSQL (real server
+ * binaries, so the {@code record_conversion} function and the SQL dialect behave as in production), an
+ * embedded Redis and one HTTP stub answering the SendGrid mail API and the Lemon Squeezy checkout API
+ * after a configurable delay.
+ */
+final class LocalStandIns implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final RedisServer redis;
+    private final int redisPort;
+    private final HttpServer stub;
+    private final AtomicLong mailsAccepted = new AtomicLong();
+    private final AtomicLong checkoutsCreated = new AtomicLong();
+
+    private LocalStandIns(EmbeddedPostgres postgres, RedisServer redis, int redisPort, HttpServer stub) {
+        this.postgres = postgres;
+        this.redis = redis;
+        this.redisPort = redisPort;
+        this.stub = stub;
+    }
+
+    static LocalStandIns start(int stubLatencyMs) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .setServerConfig("fsync", "off")
+                .start();
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        HttpServer stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "stand-in-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        LocalStandIns standIns = new LocalStandIns(postgres, redis, redisPort, stub);
+        stub.createContext("/v3/mail/send", exchange -> standIns.respond(exchange, stubLatencyMs, 202, "",
+                standIns.mailsAccepted));
+        stub.createContext("/v1/checkouts", exchange -> standIns.respond(exchange, stubLatencyMs, 201,
+                "{\"data\":{\"attributes\":{\"url\":\"https://checkout.invalid/loadtest\"}}}",
+                standIns.checkoutsCreated));
+        stub.start();
+        return standIns;
+    }
+
+    /**
+     * Properties pointing the application at the stand-ins.
+     */
+    Map<String, String> applicationProperties() {
+        String stubHost = "127.0.0.1:" + stub.getAddress().getPort();
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.data.redis.host", "127.0.0.1");
+        properties.put("spring.data.redis.port", String.valueOf(redisPort));
+        properties.put("sendgrid.api.host", stubHost);
+        properties.put("lemon-squeezy.api-url", "http://" + stubHost + "/v1/checkouts");
+        return properties;
+    }
+
+    long mailsAccepted() {
+        return mailsAccepted.get();
+    }
+
+    long checkoutsCreated() {
+        return checkoutsCreated.get();
+    }
+
+    private void respond(HttpExchange exchange, int latencyMs, int status, String body, AtomicLong counter)
+            throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        counter.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // An empty body is sent chunked: with a declared length of -1 the JDK server drops kept-alive connections
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? 0 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stub.stop(0);
+        try {
+            redis.stop();
+        } finally {
+            postgres.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.mtsaas.backend.loadtest;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compares a replayed conversion output with the stored one, ignoring what legitimately changes from
+ * one run to the next: creation timestamps, UETRs generated for input that carried none, and message
+ * ids made up from the clock.
+ */
+final class OutputDiff {
+
+    private static final Pattern TIMESTAMPS = Pattern.compile("<(CreDtTm|CreDt)>[^<]*</\\1>");
+    private static final Pattern UETR = Pattern.compile("<UETR>[^<]*</UETR>");
+    private static final Pattern CLOCK_IDS = Pattern.compile("UNKNOWN-\\d+");
+    private static final Pattern TRAILING_SPACE = Pattern.compile("[ \\t]+\\n");
+
+    private OutputDiff() {
+    }
+
+    /**
+     * @param input the conversion input; UETRs are only ignored when it did not carry one
+     */
+    static String normalize(String output, String input) {
+        String normalized = output.replace("\r\n", "\n").replace('\r', '\n');
+        normalized = TIMESTAMPS.matcher(normalized).replaceAll("<$1>*</$1>");
+        normalized = CLOCK_IDS.matcher(normalized).replaceAll("UNKNOWN-*");
+        if (!input.contains("{121:") && !input.contains("<UETR>")) {
+            normalized = UETR.matcher(normalized).replaceAll("<UETR>*</UETR>");
+        }
+        return TRAILING_SPACE.matcher(normalized).replaceAll("\n").strip();
+    }
+
+    /**
+     * Describes the first line where the normalized outputs differ, or returns null if they are equal.
+     */
+    static String firstDifference(String expected, String actual) {
+        if (expected.equals(actual)) {
+            return null;
+        }
+        String[] expectedLines = expected.split("\n", -1);
+        String[] actualLines = actual.split("\n", -1);
+        int lines = Math.min(expectedLines.length, actualLines.length);
+        for (int i = 0; i < lines; i++) {
+            if (!expectedLines[i].equals(actualLines[i])) {
+                return "line " + (i + 1) + ": expected [" + expectedLines[i].strip() + "] but was ["
+                        + actualLines[i].strip() + "]";
+            }
+        }
+        return expectedLines.length > actualLines.length
+                ? "output ends at line " + (lines + 1) + ", expected [" + expectedLines[lines].strip() + "]"
+                : "extra output from line " + (lines + 1) + ": [" + actualLines[lines].strip() + "]";
+    }
+}
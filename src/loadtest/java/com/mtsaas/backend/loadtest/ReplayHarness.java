@@ -0,0 +1,354 @@
+package com.mtsaas.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mtsaas.backend.application.service.ConversionService;
+import com.mtsaas.backend.domain.swift.mt.MtGenerator;
+import com.mtsaas.backend.domain.swift.mt.MtParser;
+import com.mtsaas.backend.domain.swift.mx.MxGenerator;
+import com.mtsaas.backend.domain.swift.mx.MxParser;
+import com.mtsaas.backend.infrastructure.archive.ConversionArchiveStore;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays stored conversions against the current build and reports latency and output differences by
+ * message type, to catch speed or output regressions on real traffic before a deploy.
+ *
+ * Rows are read from the {@code conversions} table (archived payloads from the archive directory) and
+ * held in memory, then each input goes through the same parse, dispatch and generation (including XSD
+ * validation) as a conversion request, in process and without authentication or bookkeeping, on
+ * several threads. Outputs are compared with the stored {@code output_content} after
+ * {@link OutputDiff#normalize normalization}; differences are written to
+ * {@code target/replay/<label>-diffs.ndjson} and the per-type summary to {@code <label>-summary.csv}.
+ * Given the summary of an earlier run as {@code --baseline}, latency changes are shown per type.
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:exec@replay -Dreplay.args="--jdbc-url=jdbc:postgresql://replica:5432/swiftsaas \
+ *     --db-user=readonly --since=2024-06-01 --limit=50000 --label=candidate --baseline=target/replay/main-summary.csv"
+ * </pre>
+ *
+ * Options: {@code --jdbc-url}, {@code --db-user} and {@code --db-password} (default to
+ * {@code DATABASE_URL}, {@code DATABASE_USERNAME} and {@code DATABASE_PASSWORD}), {@code --since}
+ * (30 days ago), {@code --limit} (10000, most recent first), {@code --direction} (MT_TO_MX or MX_TO_MT),
+ * {@code --archive-directory}, {@code --threads} (available processors), {@code --warmup} (1000 untimed
+ * replays), {@code --label} (replay) and {@code --baseline}. Use a read-only account: nothing is written.
+ */
+public final class ReplayHarness {
+
+    enum Outcome {
+        SAME, DIFFERENT, NOW_FAILS, NOW_SUCCEEDS, STILL_FAILS
+    }
+
+    record Row(UUID id, String direction, String messageType, String input, String output) {
+    }
+
+    private record Replay(String type, long nanos, String output, String error) {
+    }
+
+    private static final class TypeStats {
+        final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+        TypeStats() {
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, new LongAdder());
+            }
+        }
+
+        long count(Outcome outcome) {
+            return outcomes.get(outcome).sum();
+        }
+
+        double percentileMs(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+
+    private final ConversionService conversionService;
+
+    private ReplayHarness(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String label = options.getOrDefault("label", "replay");
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int warmUp = Integer.parseInt(options.getOrDefault("warmup", "1000"));
+
+        List<Row> rows = load(options);
+        System.out.printf("Loaded %d conversions%n", rows.size());
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try (AnnotationConfigApplicationContext context = conversionContext()) {
+            ReplayHarness harness = new ReplayHarness(new ConversionService(
+                    context.getBean(MtParser.class),
+                    context.getBean(MxParser.class),
+                    context.getBeanProvider(MxGenerator.class).orderedStream().toList(),
+                    context.getBeanProvider(MtGenerator.class).orderedStream().toList(),
+                    // Only the in-memory preflight is used: no user lookup, bookkeeping or metrics
+                    null, null, null));
+            for (int i = 0; i < Math.min(warmUp, rows.size()); i++) {
+                harness.replay(rows.get(i));
+            }
+
+            Map<String, TypeStats> stats = new ConcurrentHashMap<>();
+            Path outputDirectory = Path.of("target", "replay");
+            Files.createDirectories(outputDirectory);
+            Path diffFile = outputDirectory.resolve(label + "-diffs.ndjson");
+            ObjectMapper mapper = new ObjectMapper();
+            long start = System.nanoTime();
+            try (BufferedWriter diffs = Files.newBufferedWriter(diffFile)) {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                for (Row row : rows) {
+                    executor.execute(() -> {
+                        Replay replay = harness.replay(row);
+                        Outcome outcome = compare(row, replay);
+                        TypeStats typeStats = stats.computeIfAbsent(replay.type(), type -> new TypeStats());
+                        typeStats.latencies.recordValue(Math.min(replay.nanos(),
+                                typeStats.latencies.getHighestTrackableValue()));
+                        typeStats.outcomes.get(outcome).increment();
+                        if (outcome != Outcome.SAME && outcome != Outcome.STILL_FAILS) {
+                            writeDiff(diffs, mapper, row, replay, outcome);
+                        }
+                    });
+                }
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.DAYS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "Replayed %d conversions in %.1f s (%.0f/s) on %d threads%n", rows.size(),
+                    seconds, rows.size() / seconds, threads);
+
+            Map<String, double[]> baseline = options.containsKey("baseline")
+                    ? readBaseline(Path.of(options.get("baseline")))
+                    : Map.of();
+            report(new TreeMap<>(stats), baseline);
+            writeSummary(outputDirectory.resolve(label + "-summary.csv"), label, new TreeMap<>(stats));
+            System.out.println("Differences written to " + diffFile);
+        }
+    }
+
+    /**
+     * The parsers, generators and validator exactly as the application wires them, without the rest of
+     * the application.
+     */
+    private static AnnotationConfigApplicationContext conversionContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.scan("com.mtsaas.backend.domain.swift");
+        context.register(XmlValidator.class);
+        context.refresh();
+        return context;
+    }
+
+    private Replay replay(Row row) {
+        String type = row.messageType() != null ? row.messageType() : "UNKNOWN";
+        long start = System.nanoTime();
+        try {
+            String output;
+            if ("MX_TO_MT".equals(row.direction())) {
+                ConversionService.MxPreflight preflight = conversionService.preflightMx(row.input(), null);
+                type = preflight.type();
+                output = preflight.generator().generate(preflight.message());
+            } else {
+                ConversionService.MtPreflight preflight = conversionService.preflightMt(row.input(), null);
+                type = "MT" + preflight.message().getType();
+                output = preflight.generator().generate(preflight.message());
+            }
+            return new Replay(type, System.nanoTime() - start, output, null);
+        } catch (RuntimeException e) {
+            return new Replay(type, System.nanoTime() - start, null, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static Outcome compare(Row row, Replay replay) {
+        if (row.output() == null) {
+            return replay.output() == null ? Outcome.STILL_FAILS : Outcome.NOW_SUCCEEDS;
+        }
+        if (replay.output() == null) {
+            return Outcome.NOW_FAILS;
+        }
+        String expected = OutputDiff.normalize(row.output(), row.input());
+        String actual = OutputDiff.normalize(replay.output(), row.input());
+        return expected.equals(actual) ? Outcome.SAME : Outcome.DIFFERENT;
+    }
+
+    private static void writeDiff(BufferedWriter diffs, ObjectMapper mapper, Row row, Replay replay,
+            Outcome outcome) {
+        Map<String, Object> diff = new LinkedHashMap<>();
+        diff.put("id", row.id().toString());
+        diff.put("type", replay.type());
+        diff.put("outcome", outcome.name());
+        if (outcome == Outcome.DIFFERENT) {
+            diff.put("difference", OutputDiff.firstDifference(OutputDiff.normalize(row.output(), row.input()),
+                    OutputDiff.normalize(replay.output(), row.input())));
+        }
+        diff.put("error", replay.error());
+        diff.put("input", row.input());
+        diff.put("expected", row.output());
+        diff.put("actual", replay.output());
+        try {
+            String line = mapper.writeValueAsString(diff);
+            synchronized (diffs) {
+                diffs.write(line);
+                diffs.newLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write difference for " + row.id(), e);
+        }
+    }
+
+    private static List<Row> load(Map<String, String> options) throws SQLException {
+        String url = options.getOrDefault("jdbc-url", System.getenv("DATABASE_URL"));
+        if (url == null || !url.startsWith("jdbc:")) {
+            throw new IllegalArgumentException("Set --jdbc-url=jdbc:postgresql://host:port/database");
+        }
+        String user = options.getOrDefault("db-user", System.getenv("DATABASE_USERNAME"));
+        String password = options.getOrDefault("db-password", System.getenv("DATABASE_PASSWORD"));
+        LocalDate since = options.containsKey("since") ? LocalDate.parse(options.get("since"))
+                : LocalDate.now().minusDays(30);
+        int limit = Integer.parseInt(options.getOrDefault("limit", "10000"));
+        String direction = options.get("direction");
+
+        List<Row> rows = new ArrayList<>();
+        Map<String, List<Integer>> archived = new HashMap<>();
+        String sql = "SELECT id, conversion_type, message_type, input_content, output_content, archive_segment "
+                + "FROM conversions WHERE created_at >= ?" + (direction != null ? " AND conversion_type = ?" : "")
+                + " ORDER BY created_at DESC LIMIT ?";
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                statement.setTimestamp(parameter++, Timestamp.valueOf(since.atStartOfDay()));
+                if (direction != null) {
+                    statement.setString(parameter++, direction);
+                }
+                statement.setInt(parameter, limit);
+                statement.setFetchSize(500);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String segment = resultSet.getString("archive_segment");
+                        if (segment != null) {
+                            archived.computeIfAbsent(segment, key -> new ArrayList<>()).add(rows.size());
+                        }
+                        rows.add(new Row(UUID.fromString(resultSet.getString("id")),
+                                resultSet.getString("conversion_type"), resultSet.getString("message_type"),
+                                resultSet.getString("input_content"), resultSet.getString("output_content")));
+                    }
+                }
+            }
+        }
+
+        if (!archived.isEmpty() && options.containsKey("archive-directory")) {
+            ConversionArchiveStore store = new ConversionArchiveStore(options.get("archive-directory"));
+            archived.forEach((segment, indexes) -> {
+                Map<UUID, ConversionArchiveStore.ArchivedPayload> payloads = store.readAll(segment,
+                        indexes.stream().map(index -> rows.get(index).id()).toList());
+                for (int index : indexes) {
+                    Row row = rows.get(index);
+                    ConversionArchiveStore.ArchivedPayload payload = payloads.get(row.id());
+                    if (payload != null) {
+                        rows.set(index, new Row(row.id(), row.direction(), row.messageType(), payload.inputContent(),
+                                payload.outputContent()));
+                    }
+                }
+            });
+        }
+        int before = rows.size();
+        rows.removeIf(row -> row.input() == null || row.input().isBlank());
+        if (rows.size() < before) {
+            System.out.printf("Skipped %d conversions without input (archived: pass --archive-directory)%n",
+                    before - rows.size());
+        }
+        return rows;
+    }
+
+    private static void report(Map<String, TypeStats> stats, Map<String, double[]> baseline) {
+        System.out.printf("%-18s %8s %8s %8s %8s %8s %8s %9s %9s %9s%s%n", "type", "count", "same", "diff",
+                "now-fail", "now-ok", "failing", "p50 ms", "p99 ms", "max ms", baseline.isEmpty() ? ""
+                        : "  p50 vs base  p99 vs base");
+        stats.forEach((type, typeStats) -> {
+            String comparison = "";
+            double[] base = baseline.get(type);
+            if (base != null) {
+                comparison = String.format(Locale.ROOT, "  %+10.1f%%  %+10.1f%%",
+                        change(base[0], typeStats.percentileMs(50)), change(base[1], typeStats.percentileMs(99)));
+            }
+            System.out.printf(Locale.ROOT, "%-18s %8d %8d %8d %8d %8d %8d %9.3f %9.3f %9.3f%s%n", type,
+                    typeStats.latencies.getTotalCount(), typeStats.count(Outcome.SAME),
+                    typeStats.count(Outcome.DIFFERENT), typeStats.count(Outcome.NOW_FAILS),
+                    typeStats.count(Outcome.NOW_SUCCEEDS), typeStats.count(Outcome.STILL_FAILS),
+                    typeStats.percentileMs(50), typeStats.percentileMs(99),
+                    typeStats.latencies.getMaxValue() / 1_000_000.0, comparison);
+        });
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+
+    private static void writeSummary(Path file, String label, Map<String, TypeStats> stats) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("label,type,count,same,different,now_fails,now_succeeds,still_fails,p50_ms,p99_ms,p999_ms,"
+                    + "max_ms");
+            stats.forEach((type, typeStats) -> out.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f%n",
+                    label, type, typeStats.latencies.getTotalCount(), typeStats.count(Outcome.SAME),
+                    typeStats.count(Outcome.DIFFERENT), typeStats.count(Outcome.NOW_FAILS),
+                    typeStats.count(Outcome.NOW_SUCCEEDS), typeStats.count(Outcome.STILL_FAILS),
+                    typeStats.percentileMs(50), typeStats.percentileMs(99), typeStats.percentileMs(99.9),
+                    typeStats.latencies.getMaxValue() / 1_000_000.0));
+        }
+        System.out.println("Summary written to " + file);
+    }
+
+    private static Map<String, double[]> readBaseline(Path file) throws IOException {
+        Map<String, double[]> baseline = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            String[] columns = line.split(",");
+            if (columns.length >= 10 && !"type".equals(columns[1])) {
+                baseline.put(columns[1],
+                        new double[] { Double.parseDouble(columns[8]), Double.parseDouble(columns[9]) });
+            }
+        }
+        return baseline;
+    }
+}
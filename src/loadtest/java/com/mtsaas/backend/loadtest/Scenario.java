@@ -0,0 +1,19 @@
+package com.mtsaas.backend.loadtest;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * One kind of request driven by the load test. {@code request} builds the next request for a virtual
+ * user; {@code onResponse} lets the scenario keep state such as a rotated refresh cookie.
+ */
+record Scenario(String name, Function<VirtualUser, HttpRequest> request,
+        BiConsumer<VirtualUser, HttpResponse<String>> onResponse) {
+
+    Scenario(String name, Function<VirtualUser, HttpRequest> request) {
+        this(name, request, (user, response) -> {
+        });
+    }
+}
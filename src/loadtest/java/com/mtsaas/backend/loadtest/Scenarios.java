@@ -0,0 +1,165 @@
+package com.mtsaas.backend.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The requests the load test can drive, by name.
+ *
+ * Conversions cycle through the benchmark corpus ({@code src/jmh/resources/corpus}, whose small samples
+ * are the warm-up corpus in {@code src/main/resources/warmup}), or through a {@link CorpusGenerator
+ * generated corpus} when one is given, so every run sends the same mix of message types and sizes. Anonymous conversions come from a different client address each time, as the
+ * anonymous quota is per address.
+ */
+final class Scenarios {
+
+    static final List<String> MT_SAMPLES = List.of("mt103-small", "mt103-medium", "mt103-large", "mt202-small",
+            "mt202cov", "mt940-small");
+    static final List<String> MX_SAMPLES = List.of("pacs008-small", "pacs008-medium", "pacs009-small",
+            "camt053-small");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final String baseUrl;
+    private final List<String> mtBodies;
+    private final List<String> mxBodies;
+    private final AtomicInteger anonymousClients = new AtomicInteger();
+
+    Scenarios(String baseUrl) {
+        this(baseUrl, new GeneratedCorpus(MT_SAMPLES.stream().map(name -> load(name + ".txt")).toList(),
+                MX_SAMPLES.stream().map(name -> load(name + ".xml")).toList()));
+    }
+
+    Scenarios(String baseUrl, GeneratedCorpus corpus) {
+        this.baseUrl = baseUrl;
+        this.mtBodies = corpus.mtMessages().stream().map(message -> body("mtMessage", message)).toList();
+        this.mxBodies = corpus.mxMessages().stream().map(message -> body("mxMessage", message)).toList();
+    }
+
+    Map<String, Scenario> all() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        scenarios.put("mt-to-mx", new Scenario("mt-to-mx", user -> authorized(user,
+                post("/api/v1/conversion/mt-to-mx", mtBodies.get(user.sequence++ % mtBodies.size())))));
+        scenarios.put("mx-to-mt", new Scenario("mx-to-mt", user -> authorized(user,
+                post("/api/v1/conversion/mx-to-mt", mxBodies.get(user.sequence++ % mxBodies.size())))));
+        scenarios.put("mt-to-mx-anonymous", new Scenario("mt-to-mx-anonymous", user ->
+                post("/api/v1/conversion/mt-to-mx", mtBodies.get(user.sequence++ % mtBodies.size()))
+                        .header("X-Forwarded-For", nextAnonymousAddress())
+                        .build()));
+        scenarios.put("dashboard", new Scenario("dashboard", user -> authorized(user,
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/dashboard/stats")).timeout(TIMEOUT).GET())));
+        scenarios.put("login", new Scenario("login", this::login, Scenarios::keepSession));
+        scenarios.put("refresh", new Scenario("refresh", user -> post("/api/v1/auth/refresh", "")
+                .header("Cookie", user.refreshCookie)
+                .build(), Scenarios::keepSession));
+        scenarios.put("register", new Scenario("register", user -> post("/api/v1/auth/register",
+                credentials("loadtest-" + UUID.randomUUID() + "@example.com", user.password)).build()));
+        scenarios.put("purchase", new Scenario("purchase", user -> authorized(user,
+                post("/api/v1/credits/purchase", "{\"packageId\":\"starter\"}"))));
+        return scenarios;
+    }
+
+    /**
+     * An authenticated MT to MX conversion of the {@code index}-th message, for callers sharing one user
+     * across threads.
+     */
+    HttpRequest mtToMx(VirtualUser user, int index) {
+        return authorized(user, post("/api/v1/conversion/mt-to-mx", mtBodies.get(index % mtBodies.size())));
+    }
+
+    /**
+     * An anonymous MT to MX conversion of the {@code index}-th message from the given client address.
+     */
+    HttpRequest anonymousMtToMx(String clientAddress, int index) {
+        return post("/api/v1/conversion/mt-to-mx", mtBodies.get(index % mtBodies.size()))
+                .header("X-Forwarded-For", clientAddress)
+                .build();
+    }
+
+    HttpRequest login(VirtualUser user) {
+        return post("/api/v1/auth/authenticate", credentials(user.email, user.password)).build();
+    }
+
+    /**
+     * Keeps the access token and the rotated refresh cookie of a successful login or refresh.
+     */
+    static void keepSession(VirtualUser user, HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            return;
+        }
+        try {
+            Object token = MAPPER.readValue(response.body(), Map.class).get("accessToken");
+            if (token != null) {
+                user.accessToken = token.toString();
+            }
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("refresh_token="))
+                .map(cookie -> cookie.substring(0, cookie.indexOf(';') > 0 ? cookie.indexOf(';') : cookie.length()))
+                .findFirst()
+                .ifPresent(cookie -> user.refreshCookie = cookie);
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static HttpRequest authorized(VirtualUser user, HttpRequest.Builder builder) {
+        return builder.header("Authorization", "Bearer " + user.accessToken).build();
+    }
+
+    private String nextAnonymousAddress() {
+        int n = anonymousClients.incrementAndGet();
+        return "10." + ((n >> 16) & 0xff) + '.' + ((n >> 8) & 0xff) + '.' + (n & 0xff);
+    }
+
+    private static String credentials(String email, String password) {
+        return body("email", email, "password", password);
+    }
+
+    private static String body(String... keysAndValues) {
+        Map<String, String> body = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            body.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        try {
+            return MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Benchmark corpus first, then the warm-up corpus that holds the small samples
+    private static String load(String fileName) {
+        for (String location : new String[] { "corpus/", "warmup/" }) {
+            try (InputStream in = Scenarios.class.getClassLoader().getResourceAsStream(location + fileName)) {
+                if (in != null) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalArgumentException("No corpus sample " + fileName);
+    }
+}
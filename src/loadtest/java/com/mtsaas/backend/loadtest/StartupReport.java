@@ -0,0 +1,245 @@
+package com.mtsaas.backend.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Startup time and first-request latency of the packaged application in each launch mode.
+ *
+ * Needs the regular jar ({@code mvn package -DskipTests}) and the startup build in {@code target/startup}
+ * ({@code mvn -Pstartup package -DskipTests}): the AOT-processed jar, its {@code lib} directory and the
+ * class data sharing archive. Starts the {@link LocalStandIns}, then
+ * launches the application as a separate process against them several times per mode and measures the
+ * time from launch until {@code /api/v1/health} answers, the latency of the first conversion (which, with
+ * lazy initialization, also creates most of the beans) and of the second one. Medians are printed and
+ * appended to {@code target/startup-report/results.csv}:
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:exec@startup-report -Dstartup.args="--runs=5"
+ * </pre>
+ *
+ * Modes: {@code jar} (the regular jar), {@code tiered-c1} (the regular jar with the flags the Dockerfile
+ * used before), {@code aot} (the AOT-processed jar, without lazy initialization), {@code aot-cds} (with the
+ * archive as well, as in the Dockerfile) and {@code native} (a GraalVM executable given with {@code --native}). Options:
+ * {@code --modes} (comma-separated, default all available), {@code --runs} (3), {@code --jar},
+ * {@code --aot-jar}, {@code --archive}, {@code --native} and {@code --label}; {@code --spring...} and
+ * {@code --app...} options are passed to the application. Each process's output is kept in
+ * {@code target/startup-report/<mode>-<run>.log}.
+ */
+public final class StartupReport {
+
+    private static final List<String> APPLICATION_PREFIXES = List.of("--spring.", "--app.", "--server.",
+            "--management.", "--lemon-squeezy.", "--sendgrid.", "--logging.");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+    // The AOT modes run without lazy initialization, as the archive is trained and the Dockerfile runs
+    private static final String EAGER = "-Dspring.main.lazy-initialization=false";
+
+    private StartupReport() {
+    }
+
+    record Run(long readyMs, long firstRequestMs, long secondRequestMs) {
+    }
+
+    record ModeResult(String mode, List<Run> runs) {
+
+        long median(ToLongFunction<Run> metric) {
+            long[] values = runs.stream().mapToLong(metric).sorted().toArray();
+            return values[values.length / 2];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (APPLICATION_PREFIXES.stream().anyMatch(arg::startsWith)) {
+                applicationArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else if (!arg.isBlank()) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        Path jar = Path.of(options.getOrDefault("jar", "target/backend-clean-0.0.1-SNAPSHOT.jar"));
+        Path aotJar = Path.of(options.getOrDefault("aot-jar", "target/startup/backend-clean-0.0.1-SNAPSHOT.jar"));
+        Path archive = Path.of(options.getOrDefault("archive", "target/startup/application.jsa"));
+        Path nativeExecutable = options.containsKey("native") ? Path.of(options.get("native")) : null;
+        String label = options.getOrDefault("label", "default");
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException(jar + " is missing; build it first with mvn package -DskipTests");
+        }
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("jar", List.of(java, "-jar", jar.toString()));
+        modes.put("tiered-c1", List.of(java, "-XX:TieredStopAtLevel=1", "-jar", jar.toString()));
+        if (Files.exists(aotJar)) {
+            modes.put("aot", List.of(java, "-Dspring.aot.enabled=true", EAGER, "-jar", aotJar.toString()));
+        }
+        if (Files.exists(aotJar) && Files.exists(archive)) {
+            modes.put("aot-cds", List.of(java, "-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true",
+                    EAGER, "-jar", aotJar.toString()));
+        }
+        if (nativeExecutable != null) {
+            modes.put("native", List.of(nativeExecutable.toString()));
+        }
+        List<String> selected = options.containsKey("modes")
+                ? Arrays.stream(options.get("modes").split(",")).map(String::trim).toList()
+                : new ArrayList<>(modes.keySet());
+        for (String mode : selected) {
+            if (!modes.containsKey(mode)) {
+                throw new IllegalArgumentException("Unknown or unavailable mode " + mode + ", expected one of "
+                        + modes.keySet() + " (the AOT modes need mvn -Pstartup package -DskipTests)");
+            }
+        }
+
+        Path logs = Path.of("target", "startup-report");
+        Files.createDirectories(logs);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        List<ModeResult> results = new ArrayList<>();
+        try (LocalStandIns standIns = LocalStandIns.start(0)) {
+            List<String> baseArgs = new ArrayList<>();
+            standIns.applicationProperties().forEach((key, value) -> baseArgs.add("--" + key + "=" + value));
+            baseArgs.addAll(applicationArgs);
+
+            // The first start creates the schema; keep it out of the measurements
+            System.out.println("Priming the database schema");
+            launch(client, modes.get("jar"), baseArgs, logs.resolve("prime.log"), 0);
+            int address = 0;
+            for (String mode : selected) {
+                List<Run> modeRuns = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    modeRuns.add(launch(client, modes.get(mode), baseArgs, logs.resolve(mode + "-" + i + ".log"),
+                            ++address));
+                }
+                ModeResult result = new ModeResult(mode, modeRuns);
+                results.add(result);
+                print(result);
+            }
+        }
+        append(logs.resolve("results.csv"), label, applicationArgs, results);
+        System.exit(0);
+    }
+
+    /**
+     * Starts the application, waits until it is healthy, sends two anonymous conversions from a fresh client
+     * address and stops it again.
+     */
+    private static Run launch(HttpClient client, List<String> command, List<String> baseArgs, Path log,
+            int address) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(baseArgs);
+        fullCommand.add("--server.port=" + port);
+        fullCommand.add("--management.server.port=" + freePort());
+        Scenarios scenarios = new Scenarios("http://127.0.0.1:" + port);
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/health"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(fullCommand)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Application not healthy after " + STARTUP_TIMEOUT + ", see "
+                            + log);
+                }
+                try {
+                    if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(20);
+            }
+            long ready = System.nanoTime();
+            String clientAddress = "198.51.100." + (address % 250 + 1);
+            long first = timedConversion(client, scenarios.anonymousMtToMx(clientAddress, 0), log);
+            long second = timedConversion(client, scenarios.anonymousMtToMx("203.0.113." + (address % 250 + 1), 1),
+                    log);
+            return new Run(TimeUnit.NANOSECONDS.toMillis(ready - start), first, second);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long timedConversion(HttpClient client, HttpRequest request, Path log)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Conversion failed with " + response.statusCode() + ": "
+                    + response.body() + ", see " + log);
+        }
+        return elapsed;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(ModeResult result) {
+        System.out.printf(Locale.ROOT, "  %-10s ready %6d ms  first request %6d ms  second request %5d ms"
+                        + "  (median of %d)%n",
+                result.mode(), result.median(Run::readyMs), result.median(Run::firstRequestMs),
+                result.median(Run::secondRequestMs), result.runs().size());
+    }
+
+    private static void append(Path file, String label, List<String> applicationArgs, List<ModeResult> results)
+            throws IOException {
+        boolean header = !Files.exists(file);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+            if (header) {
+                out.println("time,label,mode,runs,ready_ms,first_request_ms,second_request_ms,settings");
+            }
+            String time = Instant.now().toString();
+            for (ModeResult result : results) {
+                out.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,\"%s\"%n", time, label, result.mode(),
+                        result.runs().size(), result.median(Run::readyMs), result.median(Run::firstRequestMs),
+                        result.median(Run::secondRequestMs), String.join(" ", applicationArgs));
+            }
+        }
+        System.out.println("Results appended to " + file);
+    }
+}
@@ -0,0 +1,305 @@
+package com.mtsaas.backend.loadtest;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Random but well-formed MT messages: real-looking BICs, IBANs with valid check digits, amounts spread
+ * over several orders of magnitude, and names, addresses and remittance information in the SWIFT
+ * character set within the field length limits. The same seed produces the same messages.
+ */
+final class SyntheticMessages {
+
+    private static final DateTimeFormatter YYMMDD = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter MMDD = DateTimeFormatter.ofPattern("MMdd");
+
+    private static final String[] COUNTRIES = { "DE", "GB", "FR", "NL", "ES", "BE", "IT", "US", "CH", "SE" };
+    private static final String[] CURRENCIES = { "EUR", "EUR", "EUR", "USD", "USD", "GBP", "CHF", "SEK", "PLN",
+            "CAD" };
+    private static final String[] FIRST_NAMES = { "JOHN", "JANE", "MARIA", "PETER", "ANNA", "LUCAS", "SOFIA",
+            "DAVID", "EMMA", "THOMAS", "LAURA", "MARCO", "ELENA", "HANS", "CLAIRE" };
+    private static final String[] LAST_NAMES = { "SMITH", "MUELLER", "GARCIA", "DUBOIS", "ROSSI", "JANSEN",
+            "SCHMIDT", "MARTIN", "BROWN", "LINDQVIST", "NOWAK", "PEETERS", "FISCHER", "WILSON", "MORENO" };
+    private static final String[] COMPANY_WORDS = { "ACME", "GLOBEX", "INITECH", "NORDIC", "ATLAS", "VERTEX",
+            "ORION", "HELIX", "SUMMIT", "PIONEER", "CASCADE", "MERIDIAN", "APEX", "LUMEN", "QUANTUM" };
+    private static final String[] COMPANY_KINDS = { "TRADING", "MANUFACTURING", "LOGISTICS", "FOODS",
+            "ENERGY", "SOFTWARE", "TEXTILES", "PHARMA", "MOTORS", "HOLDINGS" };
+    private static final String[] LEGAL_FORMS = { "GMBH", "LIMITED", "SA", "BV", "SL", "NV", "SPA", "INC", "AG",
+            "AB" };
+    private static final String[] STREETS = { "HAUPTSTRASSE", "HIGH STREET", "RUE DE LA PAIX", "KERKSTRAAT",
+            "CALLE MAYOR", "AVENUE LOUISE", "VIA ROMA", "MAIN STREET", "BAHNHOFSTRASSE", "STORGATAN" };
+    private static final String[] TOWNS = { "FRANKFURT", "LONDON", "PARIS", "AMSTERDAM", "MADRID", "BRUSSELS",
+            "MILAN", "NEW YORK", "ZURICH", "STOCKHOLM" };
+    private static final String[] REMITTANCE = { "INVOICE", "ORDER", "CONTRACT", "SALARY", "RENT", "SERVICES",
+            "SPARE PARTS", "CONSULTING", "LICENCE FEE", "FREIGHT" };
+
+    private final Random random;
+    private final LocalDate today;
+    private final List<String> bics = new ArrayList<>();
+    private int sequence;
+
+    SyntheticMessages(long seed) {
+        this.random = new Random(seed);
+        this.today = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+        // A few hundred banks, so counterparties repeat as in real traffic
+        for (int i = 0; i < 300; i++) {
+            bics.add(newBic());
+        }
+    }
+
+    String mt103(int remittanceLines) {
+        String currency = pick(CURRENCIES);
+        String amount = amount(100, 5_000_000);
+        LocalDate valueDate = valueDate();
+        boolean structured = random.nextInt(3) == 0;
+        StringBuilder body = new StringBuilder();
+        field(body, "20", reference("REF"));
+        field(body, "23B", "CRED");
+        field(body, "32A", valueDate.format(YYMMDD) + currency + amount);
+        if (random.nextInt(4) == 0) {
+            field(body, "33B", currency + amount);
+        }
+        field(body, "50" + (structured ? "F" : "K"), party(structured));
+        if (random.nextBoolean()) {
+            field(body, "52A", bic());
+        }
+        if (random.nextBoolean()) {
+            field(body, "57A", bic());
+        }
+        field(body, "59" + (structured ? "F" : ""), party(structured));
+        if (remittanceLines > 0) {
+            field(body, "70", remittance(remittanceLines));
+        }
+        field(body, "71A", pick(new String[] { "SHA", "SHA", "OUR", "BEN" }));
+        return message("103", "{108:" + reference("MUR") + "}{121:" + UUID.randomUUID() + "}", body);
+    }
+
+    String mt202(boolean cover, int remittanceLines) {
+        String currency = pick(CURRENCIES);
+        String amount = amount(10_000, 50_000_000);
+        StringBuilder body = new StringBuilder();
+        field(body, "20", reference(cover ? "COV" : "FIN"));
+        field(body, "21", reference("REL"));
+        field(body, "32A", valueDate().format(YYMMDD) + currency + amount);
+        if (cover || random.nextBoolean()) {
+            field(body, "52A", bic());
+        }
+        if (random.nextBoolean()) {
+            field(body, "57A", bic());
+        }
+        field(body, "58A", random.nextInt(3) == 0 ? "/" + digits(8) + "\n" + bic() : bic());
+        if (cover) {
+            boolean structured = random.nextBoolean();
+            field(body, "50" + (structured ? "F" : "K"), party(structured));
+            field(body, "59" + (structured ? "F" : ""), party(structured));
+            if (remittanceLines > 0) {
+                field(body, "70", remittance(remittanceLines));
+            }
+            field(body, "33B", currency + amount);
+        } else if (random.nextInt(3) == 0) {
+            field(body, "72", "/BNF/" + pick(REMITTANCE) + " " + digits(6));
+        }
+        String header = (cover ? "{119:COV}" : "") + "{121:" + UUID.randomUUID() + "}";
+        return message("202", header, body);
+    }
+
+    String mt102(int transactions, int remittanceLines) {
+        String currency = pick(CURRENCIES);
+        LocalDate valueDate = valueDate();
+        StringBuilder body = new StringBuilder();
+        field(body, "20", reference("BATCH"));
+        field(body, "23", "CREDIT");
+        field(body, "50K", party(false));
+        field(body, "71A", "SHA");
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 1; i <= transactions; i++) {
+            String amount = amount(50, 50_000);
+            total = total.add(decimal(amount));
+            field(body, "21", String.format(Locale.ROOT, "TX%08d%04d", sequence, i));
+            field(body, "32B", currency + amount);
+            field(body, "59", party(false));
+            if (remittanceLines > 0) {
+                field(body, "70", remittance(remittanceLines));
+            }
+        }
+        field(body, "32A", valueDate.format(YYMMDD) + currency + swiftAmount(total));
+        return message("102", "{121:" + UUID.randomUUID() + "}", body);
+    }
+
+    String mt940(int entries) {
+        String currency = pick(CURRENCIES);
+        String country = pick(COUNTRIES);
+        LocalDate date = valueDate().minusDays(Math.min(entries, 300));
+        BigDecimal balance = decimal(amount(1_000, 10_000_000));
+        StringBuilder body = new StringBuilder();
+        field(body, "20", reference("STMT"));
+        field(body, "21", "NONREF");
+        field(body, "25", iban(country));
+        field(body, "28C", (1 + random.nextInt(300)) + "/1");
+        field(body, "60F", "C" + date.format(YYMMDD) + currency + swiftAmount(balance));
+        for (int i = 1; i <= entries; i++) {
+            if (random.nextInt(Math.max(1, entries / 300)) == 0) {
+                date = date.plusDays(1);
+            }
+            boolean credit = random.nextInt(5) < 3;
+            String amount = amount(5, 200_000);
+            balance = credit ? balance.add(decimal(amount)) : balance.subtract(decimal(amount));
+            String ref = String.format(Locale.ROOT, "E%07d%06d", sequence % 10_000_000, i % 1_000_000);
+            field(body, "61", date.format(YYMMDD) + date.format(MMDD) + (credit ? "C" : "D") + amount
+                    + "NTRF" + ref + "//BK" + digits(10));
+            field(body, "86", "/EREF/" + ref + "/REMI/" + pick(REMITTANCE) + " " + digits(8)
+                    + "\n/NAME/" + (random.nextBoolean() ? person() : company()));
+        }
+        String sign = balance.signum() < 0 ? "D" : "C";
+        field(body, "62F", sign + date.format(YYMMDD) + currency + swiftAmount(balance.abs()));
+        return message("940", "{108:" + reference("MUR") + "}", body);
+    }
+
+    private String message(String type, String userHeader, StringBuilder body) {
+        String time = String.format(Locale.ROOT, "%02d%02d", 8 + random.nextInt(10), random.nextInt(60));
+        String date = today.format(YYMMDD);
+        String sender = bic();
+        String receiver = bic();
+        return "{1:F01" + sender.substring(0, 8) + "A" + sender.substring(8) + "0000000000}"
+                + "{2:O" + type + time + date + receiver.substring(0, 8) + "X" + receiver.substring(8)
+                + "0000000000" + date + time + "N}"
+                + "{3:" + userHeader + "}{4:\n" + body + "-}";
+    }
+
+    private static void field(StringBuilder body, String tag, String value) {
+        body.append(':').append(tag).append(':').append(value).append('\n');
+    }
+
+    private String party(boolean structured) {
+        String country = pick(COUNTRIES);
+        String name = random.nextInt(3) == 0 ? person() : company();
+        String street = (1 + random.nextInt(200)) + " " + pick(STREETS);
+        String town = digits(5) + " " + pick(TOWNS);
+        if (structured) {
+            return "/" + iban(country) + "\n1/" + name + "\n2/" + street + "\n3/" + country + "/" + town;
+        }
+        return "/" + iban(country) + "\n" + name + "\n" + street + "\n" + town;
+    }
+
+    private String person() {
+        return pick(FIRST_NAMES) + " " + pick(LAST_NAMES);
+    }
+
+    private String company() {
+        return pick(COMPANY_WORDS) + " " + pick(COMPANY_KINDS) + " " + pick(LEGAL_FORMS);
+    }
+
+    private String remittance(int lines) {
+        StringBuilder text = new StringBuilder("/INV/" + today.getYear() + "-" + digits(5));
+        for (int i = 1; i < lines; i++) {
+            text.append('\n').append(pick(REMITTANCE)).append(' ').append(digits(4 + random.nextInt(8)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * IBAN with valid ISO 13616 check digits; the BBAN layout is simplified to the country's length.
+     */
+    String iban(String country) {
+        int bbanLength = switch (country) {
+            case "DE" -> 18;
+            case "GB" -> 18;
+            case "FR", "IT" -> 23;
+            case "NL" -> 14;
+            case "ES", "SE" -> 20;
+            case "BE" -> 12;
+            case "CH" -> 17;
+            default -> 20;
+        };
+        String bban = country.equals("GB") || country.equals("NL")
+                ? letters(4) + digits(bbanLength - 4)
+                : digits(bbanLength);
+        StringBuilder numeric = new StringBuilder();
+        for (char c : (bban + country + "00").toCharArray()) {
+            numeric.append(Character.isLetter(c) ? String.valueOf(c - 'A' + 10) : String.valueOf(c));
+        }
+        int check = 98 - new BigInteger(numeric.toString()).mod(BigInteger.valueOf(97)).intValue();
+        return country + String.format(Locale.ROOT, "%02d", check) + bban;
+    }
+
+    private String bic() {
+        return bics.get(random.nextInt(bics.size()));
+    }
+
+    private String newBic() {
+        String location = letters(1) + (char) ('1' + random.nextInt(9));
+        String branch = random.nextInt(4) == 0 ? letters(3) : "XXX";
+        return letters(4) + pick(COUNTRIES) + location + branch;
+    }
+
+    private String reference(String prefix) {
+        sequence++;
+        return prefix + String.format(Locale.ROOT, "%0" + (16 - prefix.length()) + "d", sequence);
+    }
+
+    private LocalDate valueDate() {
+        return today.minusDays(random.nextInt(5));
+    }
+
+    /**
+     * Log-uniform amount with two decimals, in SWIFT notation.
+     */
+    private String amount(double min, double max) {
+        double value = Math.exp(Math.log(min) + random.nextDouble() * (Math.log(max) - Math.log(min)));
+        return swiftAmount(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private static String swiftAmount(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString().replace('.', ',');
+    }
+
+    private static BigDecimal decimal(String swiftAmount) {
+        return new BigDecimal(swiftAmount.replace(',', '.'));
+    }
+
+    private String digits(int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+
+    private String letters(int count) {
+        StringBuilder letters = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            letters.append((char) ('A' + random.nextInt(26)));
+        }
+        return letters.toString();
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Draws from {@code [min, max]} log-uniformly, so small sizes are common and large ones still occur.
+     */
+    int size(int min, int max) {
+        if (max <= min) {
+            return min;
+        }
+        // Shift ranges starting at zero, as the logarithm needs a positive lower bound
+        int shift = min < 1 ? 1 - min : 0;
+        double low = Math.log(min + shift);
+        double value = Math.exp(low + random.nextDouble() * (Math.log(max + shift + 1.0) - low));
+        return Math.min(max, (int) value - shift);
+    }
+
+    Random random() {
+        return random;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mtsaas.backend.loadtest;
+
+/**
+ * A seeded account driven by one load-test thread at a time.
+ */
+final class VirtualUser {
+
+    final String email;
+    final String password;
+    volatile String accessToken;
+    volatile String refreshCookie;
+    int sequence;
+
+    VirtualUser(String email, String password) {
+        this.email = email;
+        this.password = password;
+    }
+}
@@ -2,8 +2,11 @@ package com.mtsaas.backend.api;
 
 import com.mtsaas.backend.application.dto.AuthDto;
 import com.mtsaas.backend.application.service.AuthService;
+import com.mtsaas.backend.infrastructure.security.ClientIpResolver;
 import com.mtsaas.backend.infrastructure.security.JwtService;
 import com.mtsaas.backend.infrastructure.security.TokenBlacklistService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -42,8 +45,8 @@ public class AuthController {
 
     @PostMapping("/authenticate")
     public ResponseEntity<AuthDto.AuthenticationResponse> authenticate(
-            @RequestBody AuthDto.AuthenticationRequest request) {
-        AuthService.AuthSession authSession = authService.authenticate(request);
+            @RequestBody AuthDto.AuthenticationRequest request, HttpServletRequest httpRequest) {
+        AuthService.AuthSession authSession = authService.authenticate(request, ClientIpResolver.resolve(httpRequest));
         return ResponseEntity.ok()
                 .header(HttpHeaders.SET_COOKIE, createRefreshCookie(authSession.getRefreshToken()))
                 .body(authSession.getResponse());
@@ -75,9 +78,16 @@ public class AuthController {
         final String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            // Get token expiration and blacklist it
-            long expirationTime = jwtService.extractExpirationTime(token);
-            tokenBlacklistService.blacklistToken(token, expirationTime);
+            // Revoke the token cluster-wide, reusing the claims verified by the auth filter
+            Object claims = request.getAttribute(JwtService.CLAIMS_ATTRIBUTE);
+            try {
+                // Redis failures are handled inside: the token is refused on this node at once and the
+                // revocation is retried for the others, so logout still succeeds
+                tokenBlacklistService.revoke(
+                        claims instanceof Claims verified ? verified : jwtService.parseToken(token), token);
+            } catch (JwtException e) {
+                // Expired or invalid tokens cannot be used anyway
+            }
         }
 
         String refreshToken = readCookie(request, refreshCookieName);
@@ -1,6 +1,8 @@
 package com.mtsaas.backend.api;
 
 import com.mtsaas.backend.application.service.ConversionService;
+import com.mtsaas.backend.application.service.ConversionValidationService;
+import com.mtsaas.backend.dto.ValidationResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +19,7 @@ import java.util.Map;
 public class ConversionController {
 
     private final ConversionService conversionService;
+    private final ConversionValidationService conversionValidationService;
 
     @PostMapping("/mt-to-mx")
     public ResponseEntity<Map<String, String>> convertMtToMx(@RequestBody Map<String, String> request) {
@@ -91,4 +94,27 @@ public class ConversionController {
                     .body(Map.of("error", "Internal server error during conversion"));
         }
     }
+
+    /**
+     * Validate-only: parses and validates (XSD and CBPR+) without storing anything or charging credits.
+     */
+    @PostMapping("/mt-to-mx/validate")
+    public ResponseEntity<?> validateMtToMx(@RequestBody Map<String, String> request) {
+        String mtContent = request.get("mtMessage");
+        if (mtContent == null || mtContent.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "MT message is required"));
+        }
+        ValidationResponse response = conversionValidationService.validateMt(mtContent, request.get("messageType"));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/mx-to-mt/validate")
+    public ResponseEntity<?> validateMxToMt(@RequestBody Map<String, String> request) {
+        String mxContent = request.get("mxMessage");
+        if (mxContent == null || mxContent.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "MX message is required"));
+        }
+        ValidationResponse response = conversionValidationService.validateMx(mxContent, request.get("messageType"));
+        return ResponseEntity.ok(response);
+    }
 }
@@ -1,13 +1,23 @@
 package com.mtsaas.backend.api;
 
+import com.mtsaas.backend.application.service.ConversionArchiveService;
+import com.mtsaas.backend.application.service.ConversionExportService;
+import com.mtsaas.backend.application.service.ConversionSearchService;
 import com.mtsaas.backend.domain.Conversion;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.dto.ConversionSearchCriteria;
+import com.mtsaas.backend.dto.ConversionSearchResult;
 import com.mtsaas.backend.infrastructure.repository.ConversionRepository;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -18,6 +28,10 @@ import java.util.UUID;
 public class ConversionHistoryController {
 
     private final ConversionRepository conversionRepository;
+    private final UserRepository userRepository;
+    private final ConversionExportService conversionExportService;
+    private final ConversionSearchService conversionSearchService;
+    private final ConversionArchiveService conversionArchiveService;
 
     @GetMapping("/history")
     public List<Conversion> getConversionHistory() {
@@ -26,7 +40,75 @@ public class ConversionHistoryController {
             throw new SecurityException("Authentication required");
         }
 
-        return conversionRepository.findByUserEmailOrderByCreatedAtDesc(auth.getName());
+        return conversionArchiveService.hydrate(
+                conversionRepository.findByUserEmailOrderByCreatedAtDesc(auth.getName()));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportConversionHistory(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean includePayloads,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            throw new SecurityException("Authentication required");
+        }
+
+        ConversionExportService.Format exportFormat = ConversionExportService.Format.fromParameter(format);
+        User user = userRepository.findByEmail(auth.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        UUID userId = user.getId();
+
+        String filename = "conversions." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> conversionExportService.export(
+                userId, exportFormat, includePayloads, gzip, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? "application/gzip" : exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public List<ConversionSearchResult> searchConversions(
+            @RequestParam(required = false) String reference,
+            @RequestParam(required = false) String uetr,
+            @RequestParam(required = false) String bic,
+            @RequestParam(required = false) String senderBic,
+            @RequestParam(required = false) String receiverBic,
+            @RequestParam(required = false) BigDecimal amount,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String currency,
+            @RequestParam(defaultValue = "false") boolean allUsers,
+            @RequestParam(defaultValue = "50") int limit) {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            throw new SecurityException("Authentication required");
+        }
+
+        boolean isAdmin = auth.getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        UUID userId = null;
+        if (!allUsers || !isAdmin) {
+            userId = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"))
+                    .getId();
+        }
+
+        return conversionSearchService.search(ConversionSearchCriteria.builder()
+                .userId(userId)
+                .reference(reference)
+                .uetr(uetr)
+                .bic(bic)
+                .senderBic(senderBic)
+                .receiverBic(receiverBic)
+                .amount(amount)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .currency(currency)
+                .limit(limit)
+                .build());
     }
 
     @DeleteMapping("/{id}")
@@ -48,6 +130,7 @@ public class ConversionHistoryController {
         }
 
         conversionRepository.deleteById(Objects.requireNonNull(id));
+        conversionArchiveService.forget(conversion);
         return ResponseEntity.ok().build();
     }
 }
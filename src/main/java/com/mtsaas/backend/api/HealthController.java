@@ -1,39 +1,78 @@
 package com.mtsaas.backend.api;
 
-import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import com.mtsaas.backend.application.service.WarmUpService;
+import com.mtsaas.backend.infrastructure.health.DependencyHealthMonitor;
 import lombok.RequiredArgsConstructor;
 
-import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Liveness and readiness.
+ *
+ * Neither touches a dependency: readiness is answered from the warm-up state and the last results of the
+ * {@link DependencyHealthMonitor}'s background probes, so a health check never competes with conversions
+ * for a pooled connection. {@code /api/v1/health} is kept as an alias of readiness.
+ */
 @RestController
 @RequestMapping("/api/v1/health")
 @RequiredArgsConstructor
-@SuppressWarnings("unused")
 public class HealthController {
 
-    @Lazy
-    private final UserRepository userRepository;
-
-    @GetMapping
-    @SuppressWarnings("unused")
-    public ResponseEntity<Map<String, String>> health() {
-        // Temporarily commented out DB check to isolate 500 error cause
-        /*
-         * try {
-         * userRepository.count();
-         * } catch (Exception e) {
-         * String errorMessage = e.getMessage() != null ? e.getMessage() :
-         * e.getClass().getSimpleName();
-         * return ResponseEntity.status(503).body(Map.of("status", "DOWN", "error",
-         * errorMessage));
-         * }
-         */
-        return ResponseEntity.ok(Map.of("status", "UP", "note", "Database check temporarily disabled for diagnostics"));
+    private final WarmUpService warmUpService;
+    private final DependencyHealthMonitor dependencyHealthMonitor;
+
+    /**
+     * 200 as long as the process serves requests; for the keep-alive cron and restart decisions.
+     */
+    @GetMapping("/live")
+    public ResponseEntity<Map<String, Object>> live() {
+        return ResponseEntity.ok(Map.of("status", "UP"));
+    }
+
+    /**
+     * 200 once the warm-up is done and the critical dependencies are up, 503 otherwise. Non-critical
+     * dependencies that are down turn the status into DEGRADED without failing the check.
+     */
+    @GetMapping({ "", "/ready" })
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, DependencyHealthMonitor.Check> checks = dependencyHealthMonitor.snapshot();
+        boolean dependenciesReady = dependencyHealthMonitor.isReady();
+        boolean ready = warmUpService.isReady() && dependenciesReady;
+
+        String status;
+        if (!warmUpService.isReady()) {
+            status = "WARMING_UP";
+        } else if (!dependenciesReady) {
+            status = "DOWN";
+        } else if (checks.values().stream().anyMatch(
+                check -> dependencyHealthMonitor.currentStatus(check) != DependencyHealthMonitor.Status.UP)) {
+            status = "DEGRADED";
+        } else {
+            status = "UP";
+        }
+
+        Map<String, Object> dependencies = new LinkedHashMap<>();
+        for (DependencyHealthMonitor.Check check : checks.values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("status", dependencyHealthMonitor.currentStatus(check));
+            details.put("critical", check.critical());
+            details.put("detail", check.detail());
+            details.put("latencyMs", check.latencyMs());
+            details.put("ageMs", check.ageMs());
+            dependencies.put(check.name(), details);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status);
+        body.put("warmUp", warmUpService.getState());
+        body.put("warmUpMs", warmUpService.getDurationMs());
+        body.put("dependencies", dependencies);
+        return ResponseEntity.status(ready ? 200 : 503).body(body);
     }
-}
\ No newline at end of file
+}
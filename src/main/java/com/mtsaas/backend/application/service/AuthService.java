@@ -9,6 +9,7 @@ import com.mtsaas.backend.infrastructure.email.EmailService;
 import com.mtsaas.backend.infrastructure.repository.EmailVerificationTokenRepository;
 import com.mtsaas.backend.infrastructure.repository.UserRepository;
 import com.mtsaas.backend.infrastructure.security.JwtService;
+import com.mtsaas.backend.infrastructure.security.LoginThrottleService;
 import com.mtsaas.backend.infrastructure.security.RateLimitingService;
 import com.mtsaas.backend.infrastructure.security.RefreshTokenService;
 import com.mtsaas.backend.infrastructure.security.TokenGeneratorService;
@@ -21,10 +22,15 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -41,14 +47,24 @@ public class AuthService {
         private final EmailService emailService;
         private final RateLimitingService rateLimitingService;
         private final RefreshTokenService refreshTokenService;
+        private final LoginThrottleService loginThrottleService;
+        private final PlatformTransactionManager transactionManager;
 
         @Value("${app.frontend.url:http://localhost:3000}")
         private String frontendUrl;
 
-        @Transactional(isolation = org.springframework.transaction.annotation.Isolation.SERIALIZABLE)
         public AuthDto.AuthenticationResponse register(AuthDto.RegisterRequest request) {
                 log.info("Registering new user: {}", request.getEmail());
-                
+
+                // Hash before the transaction starts so no pooled connection is held during BCrypt
+                String passwordHash = passwordEncoder.encode(request.getPassword());
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+                return transaction.execute(status -> registerInTransaction(request, passwordHash));
+        }
+
+        private AuthDto.AuthenticationResponse registerInTransaction(AuthDto.RegisterRequest request,
+                        String passwordHash) {
                 String email = request.getEmail();
                 User user = null;
                 
@@ -60,7 +76,7 @@ public class AuthService {
                 
                 user = new User();
                 user.setEmail(email);
-                user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+                user.setPasswordHash(passwordHash);
                 user.setRole(Role.USER);
                 user.setCredits(5);  // Give 5 free credits on signup
                 user.setEmailVerified(false);
@@ -101,11 +117,25 @@ public class AuthService {
                 return new AuthDto.AuthenticationResponse(null, null, "Please check your email to verify your account.");
         }
 
-        public AuthSession authenticate(AuthDto.AuthenticationRequest request) {
-                authenticationManager.authenticate(
-                                new UsernamePasswordAuthenticationToken(
-                                                request.getEmail(),
-                                                request.getPassword()));
+        public AuthSession authenticate(AuthDto.AuthenticationRequest request, String clientIp) {
+                loginThrottleService.beginAttempt(clientIp);
+                try {
+                        authenticationManager.authenticate(
+                                        new UsernamePasswordAuthenticationToken(
+                                                        request.getEmail(),
+                                                        request.getPassword()));
+                } catch (InternalAuthenticationServiceException e) {
+                        // Lookup failure, not a wrong password
+                        loginThrottleService.releaseAttempt(clientIp);
+                        throw e;
+                } catch (AuthenticationException e) {
+                        loginThrottleService.recordFailure();
+                        throw e;
+                } catch (RuntimeException e) {
+                        loginThrottleService.releaseAttempt(clientIp);
+                        throw e;
+                }
+                loginThrottleService.releaseAttempt(clientIp);
                 var user = userRepository.findByEmail(request.getEmail())
                                 .orElseThrow();
                                 
@@ -144,16 +174,15 @@ public class AuthService {
             return session;
         }
 
-        @Transactional
         public AuthSession refresh(String rawRefreshToken) {
-            var existingToken = refreshTokenService.findValidToken(rawRefreshToken)
+            // No transaction: with the Redis token store a refresh does not touch the database
+            var rotation = refreshTokenService.rotate(rawRefreshToken)
                     .orElseThrow(() -> new IllegalArgumentException("Invalid or expired refresh token."));
 
-            refreshTokenService.revoke(existingToken);
-            return createSessionForUser(existingToken.getUser());
+            var jwtToken = jwtService.generateToken(rotation.email());
+            return new AuthSession(new AuthDto.AuthenticationResponse(jwtToken, null, null), rotation.refreshToken());
         }
 
-        @Transactional
         public void logout(String rawRefreshToken) {
             if (rawRefreshToken != null && !rawRefreshToken.isBlank()) {
                 refreshTokenService.revokeByRawToken(rawRefreshToken);
@@ -6,6 +6,7 @@ import com.mtsaas.backend.domain.User;
 import com.mtsaas.backend.infrastructure.repository.ContactUsRepository;
 import com.mtsaas.backend.infrastructure.repository.UserRepository;
 import com.mtsaas.backend.infrastructure.email.EmailService;
+import com.mtsaas.backend.infrastructure.security.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -115,11 +116,7 @@ public class ContactUsService {
     }
 
     private String getClientIp(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0].trim();
+        return ClientIpResolver.resolve(request);
     }
 
 }
@@ -0,0 +1,293 @@
+package com.mtsaas.backend.application.service;
+
+import com.mtsaas.backend.domain.Conversion;
+import com.mtsaas.backend.infrastructure.archive.ConversionArchiveStore;
+import com.mtsaas.backend.infrastructure.archive.ConversionArchiveStore.ArchivedPayload;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Tiered storage for conversions, organised by calendar month of {@code created_at}.
+ *
+ * Rows of the last {@code app.archive.hot-months} months stay fully in Postgres. Older months have
+ * their payloads moved to compressed segment files and nulled in the table, which leaves a small
+ * metadata row behind. Months past {@code app.archive.retention-months} are purged: their rows are
+ * deleted and their segment files dropped. Callers reading history get archived payloads back
+ * transparently through {@link #hydrate(List)}.
+ *
+ * With several instances only the holder of the {@code conversion-archive} row in {@code job_leases} runs;
+ * the lease is extended after every batch and expires on its own if the holder dies, so no connection is
+ * held for the length of the run. Each batch commits on its own, and purged segment files are deleted only
+ * once no committed row points at them. Segments live in {@code app.archive.directory}, which every
+ * instance must share (or the service must run as a single instance): before archiving, the run checks that
+ * every segment named in the table is present in its directory and refuses to archive otherwise, so
+ * payloads are never split across node-local disks.
+ */
+@Service
+@Slf4j
+public class ConversionArchiveService {
+
+    private static final String LEASE = "conversion-archive";
+
+    // Taken when free or expired; the update count says whether this run got it
+    private static final String ACQUIRE_LEASE_SQL = "INSERT INTO job_leases (name, holder, expires_at) "
+            + "VALUES (?, ?, now() + make_interval(mins => ?)) ON CONFLICT (name) DO UPDATE "
+            + "SET holder = EXCLUDED.holder, expires_at = EXCLUDED.expires_at WHERE job_leases.expires_at < now()";
+
+    // Distinct segments through idx_conversions_archive_segment, one index probe per segment
+    private static final String SEGMENTS_SQL = "WITH RECURSIVE segments AS ("
+            + "(SELECT archive_segment FROM conversions WHERE archive_segment IS NOT NULL "
+            + "ORDER BY archive_segment LIMIT 1) "
+            + "UNION ALL SELECT (SELECT c.archive_segment FROM conversions c WHERE c.archive_segment > s.archive_segment "
+            + "ORDER BY c.archive_segment LIMIT 1) FROM segments s WHERE s.archive_segment IS NOT NULL) "
+            + "SELECT archive_segment FROM segments WHERE archive_segment IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversionArchiveStore archiveStore;
+    private final EntityManager entityManager;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.hot-months:3}")
+    private int hotMonths;
+
+    @Value("${app.archive.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.archive.lease-minutes:15}")
+    private int leaseMinutes;
+
+    public ConversionArchiveService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ConversionArchiveStore archiveStore, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveStore = archiveStore;
+        this.entityManager = entityManager;
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void runScheduledArchival() {
+        if (!enabled) {
+            return;
+        }
+        String holder = UUID.randomUUID().toString();
+        try {
+            if (jdbcTemplate.update(ACQUIRE_LEASE_SQL, LEASE, holder, leaseMinutes) == 0) {
+                log.info("Conversion archival is running on another instance, skipping");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("Could not take the conversion archival lease: {}", e.getMessage(), e);
+            return;
+        }
+        try {
+            if (!directoryHoldsArchive()) {
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            archiveBefore(current.minusMonths(Math.max(hotMonths, 1)), holder);
+            if (retentionMonths > 0) {
+                purgeBefore(current.minusMonths(Math.max(retentionMonths, hotMonths)), holder);
+            }
+        } catch (Exception e) {
+            log.error("Conversion archival run failed: {}", e.getMessage(), e);
+        } finally {
+            try {
+                jdbcTemplate.update("DELETE FROM job_leases WHERE name = ? AND holder = ?", LEASE, holder);
+            } catch (Exception e) {
+                log.warn("Could not release the conversion archival lease, it expires in {} minutes: {}",
+                        leaseMinutes, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pushes the lease expiry out; fails the run when another instance has taken over an expired lease.
+     */
+    private void extendLease(String holder) {
+        int extended = jdbcTemplate.update("UPDATE job_leases SET expires_at = now() + make_interval(mins => ?) "
+                + "WHERE name = ? AND holder = ?", leaseMinutes, LEASE, holder);
+        if (extended == 0) {
+            throw new IllegalStateException("Conversion archival lease lost to another instance");
+        }
+    }
+
+    /**
+     * Whether every segment the table refers to is in this instance's archive directory, i.e. the
+     * directory is the shared one rather than a disk another instance never wrote to.
+     */
+    boolean directoryHoldsArchive() {
+        Set<String> missing = new HashSet<>(jdbcTemplate.queryForList(SEGMENTS_SQL, String.class));
+        missing.removeAll(archiveStore.listSegments());
+        if (missing.isEmpty()) {
+            return true;
+        }
+        log.error("Archive segments {} are not in this instance's archive directory; app.archive.directory must be "
+                + "shared by all instances, or the service run as one instance. Not archiving.", missing);
+        return false;
+    }
+
+    /**
+     * Moves payloads of every conversion created before {@code month} into archive segments.
+     */
+    long archiveBefore(YearMonth month, String holder) {
+        Timestamp cutoff = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        long archived = 0;
+        while (true) {
+            extendLease(holder);
+            List<ArchiveRow> batch = jdbcTemplate.query(
+                    "SELECT id, created_at, input_content, output_content FROM conversions "
+                            + "WHERE archived_at IS NULL AND created_at < ? ORDER BY created_at, id LIMIT ?",
+                    (rs, rowNum) -> new ArchiveRow(
+                            rs.getObject("id", UUID.class),
+                            rs.getTimestamp("created_at").toLocalDateTime(),
+                            rs.getString("input_content"),
+                            rs.getString("output_content")),
+                    cutoff, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            Map<String, List<ArchiveRow>> bySegment = batch.stream().collect(Collectors.groupingBy(
+                    row -> ConversionArchiveStore.segmentFor(YearMonth.from(row.createdAt())),
+                    LinkedHashMap::new, Collectors.toList()));
+
+            for (Map.Entry<String, List<ArchiveRow>> entry : bySegment.entrySet()) {
+                String segment = entry.getKey();
+                List<ArchiveRow> rows = entry.getValue();
+                // Segment data is durable before payloads are dropped from the table
+                archiveStore.append(segment, rows.stream()
+                        .map(row -> new ArchivedPayload(row.id(), row.inputContent(), row.outputContent()))
+                        .toList());
+                List<Object[]> args = rows.stream().map(row -> new Object[] { segment, row.id() }).toList();
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        "UPDATE conversions SET input_content = NULL, output_content = NULL, "
+                                + "archived_at = now(), archive_segment = ? WHERE id = ?",
+                        args));
+            }
+
+            archived += batch.size();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived payloads of {} conversions created before {}", archived, month);
+        }
+        return archived;
+    }
+
+    /**
+     * Deletes conversions created before {@code month} and drops their archive segments.
+     *
+     * Anonymous conversions are kept (without payloads) because they back the per-IP free quota. Every
+     * batch commits on its own; segment files go last, after no committed row refers to them any more, so a
+     * failure part-way leaves files behind for the next run rather than rows pointing at deleted files.
+     */
+    long purgeBefore(YearMonth month, String holder) {
+        Timestamp cutoff = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        long purged = 0;
+        while (true) {
+            extendLease(holder);
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<UUID> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM conversions WHERE created_at < ? AND user_id IS NOT NULL LIMIT ?",
+                        UUID.class, cutoff, batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                List<Object[]> args = ids.stream().map(id -> new Object[] { id }).toList();
+                jdbcTemplate.batchUpdate("UPDATE credit_usage SET conversion_id = NULL WHERE conversion_id = ?", args);
+                jdbcTemplate.batchUpdate("DELETE FROM conversions WHERE id = ?", args);
+                return ids.size();
+            });
+            purged += deleted != null ? deleted : 0;
+            if (deleted == null || deleted < batchSize) {
+                break;
+            }
+        }
+
+        // The anonymous rows left behind must not point at the segments dropped below; committed on its own
+        // before any file is deleted
+        while (true) {
+            extendLease(holder);
+            int detached = jdbcTemplate.update("UPDATE conversions SET archive_segment = NULL WHERE id IN ("
+                    + "SELECT id FROM conversions WHERE created_at < ? AND archive_segment IS NOT NULL LIMIT ?)",
+                    cutoff, batchSize);
+            if (detached < batchSize) {
+                break;
+            }
+        }
+        String cutoffSegment = ConversionArchiveStore.segmentFor(month);
+        for (String segment : archiveStore.listSegments()) {
+            if (segment.compareTo(cutoffSegment) < 0) {
+                archiveStore.deleteSegment(segment);
+            }
+        }
+        log.info("Purged {} conversions created before {}", purged, month);
+        return purged;
+    }
+
+    /**
+     * Restores archived payloads onto the given conversions. Archived entities are detached first so
+     * the restored payloads are never written back to the table.
+     */
+    public List<Conversion> hydrate(List<Conversion> conversions) {
+        Map<String, List<Conversion>> bySegment = conversions.stream()
+                .filter(c -> c.getArchivedAt() != null && c.getArchiveSegment() != null)
+                .collect(Collectors.groupingBy(Conversion::getArchiveSegment));
+
+        for (Map.Entry<String, List<Conversion>> entry : bySegment.entrySet()) {
+            List<Conversion> archived = entry.getValue();
+            Map<UUID, ArchivedPayload> payloads = archiveStore.readAll(entry.getKey(),
+                    archived.stream().map(Conversion::getId).toList());
+            if (payloads.size() < archived.size()) {
+                log.warn("{} archived payloads missing from segment {}; is app.archive.directory shared by all "
+                        + "instances?", archived.size() - payloads.size(), entry.getKey());
+            }
+            for (Conversion conversion : archived) {
+                ArchivedPayload payload = payloads.get(conversion.getId());
+                if (payload == null) {
+                    continue;
+                }
+                if (entityManager.contains(conversion)) {
+                    entityManager.detach(conversion);
+                }
+                conversion.setInputContent(payload.inputContent());
+                conversion.setOutputContent(payload.outputContent());
+            }
+        }
+        return conversions;
+    }
+
+    public void forget(Conversion conversion) {
+        if (conversion.getArchiveSegment() != null) {
+            archiveStore.delete(conversion.getArchiveSegment(), conversion.getId());
+        }
+    }
+
+    private record ArchiveRow(UUID id, LocalDateTime createdAt, String inputContent, String outputContent) {
+    }
+}
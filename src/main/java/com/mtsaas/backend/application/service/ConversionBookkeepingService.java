@@ -0,0 +1,256 @@
+package com.mtsaas.backend.application.service;
+
+import com.mtsaas.backend.domain.Conversion;
+import com.mtsaas.backend.domain.ConversionMetadata;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.infrastructure.jfr.BookkeepingEvent;
+import com.mtsaas.backend.infrastructure.repository.ConversionRepository;
+import com.mtsaas.backend.infrastructure.repository.CreditPurchaseRepository;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the outcome of a conversion together with its credit accounting.
+ *
+ * Normally this is a single call to the {@code record_conversion} database function, so the quota or
+ * credit check, the conversion insert, the credit deduction and the ledger entry cost one statement on
+ * one pooled connection inside one transaction. If the function is not installed, the same steps run
+ * through the repositories inside a single transaction instead. Both take the same per-IP advisory lock
+ * for anonymous attempts, so concurrent first conversions from one address cannot both pass the quota.
+ *
+ * {@link #precheck} lets callers refuse an exhausted client before spending CPU on generation without a
+ * second round trip: it only reads markers this node set when {@link #record} last refused a client, or
+ * used up an address's anonymous quota or a user's last credit. Markers expire (user markers quickly, as
+ * credits can be bought on another node), and {@link #record} remains the authoritative check.
+ */
+@Service
+@Slf4j
+public class ConversionBookkeepingService {
+
+    public static final String OK = "OK";
+
+    public record Result(String code, UUID conversionId, long remainingCredits, long dbNanos) {
+        public boolean isOk() {
+            return OK.equals(code);
+        }
+    }
+
+    private static final String RECORD_CONVERSION_SQL =
+            "SELECT result_code, result_conversion_id, result_remaining_credits "
+                    + "FROM record_conversion(CAST(? AS uuid), CAST(? AS varchar), CAST(? AS varchar), "
+                    + "CAST(? AS varchar), CAST(? AS text), CAST(? AS text), CAST(? AS text), CAST(? AS varchar), "
+                    + "CAST(? AS varchar), CAST(? AS varchar), CAST(? AS varchar), CAST(? AS varchar), "
+                    + "CAST(? AS numeric), CAST(? AS varchar), CAST(? AS bigint), CAST(? AS varchar))";
+
+    private static final String ANONYMOUS_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext(?))";
+
+    private static final String ANONYMOUS_LIMIT_REACHED = "ANONYMOUS_LIMIT_REACHED";
+    private static final String INSUFFICIENT_CREDITS = "INSUFFICIENT_CREDITS";
+    private static final int MAX_MARKERS = 10_000;
+
+    private static final String UNDEFINED_FUNCTION = "42883";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversionRepository conversionRepository;
+    private final UserRepository userRepository;
+    private final CreditPurchaseRepository creditPurchaseRepository;
+    private final CreditService creditService;
+
+    private record Exhausted(String code, long expiresAtMillis) {
+    }
+
+    // "ip:<address>" or "user:<id>" -> refusal code, for clients record() found out of quota or credits
+    private final Map<String, Exhausted> exhausted = new ConcurrentHashMap<>();
+
+    @Value("${app.conversion.exhausted-anonymous-ttl-ms:3600000}")
+    private long anonymousMarkerTtlMs = 3_600_000;
+
+    @Value("${app.conversion.exhausted-user-ttl-ms:60000}")
+    private long userMarkerTtlMs = 60_000;
+
+    public ConversionBookkeepingService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ConversionRepository conversionRepository, UserRepository userRepository,
+            CreditPurchaseRepository creditPurchaseRepository, CreditService creditService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.conversionRepository = conversionRepository;
+        this.userRepository = userRepository;
+        this.creditPurchaseRepository = creditPurchaseRepository;
+        this.creditService = creditService;
+    }
+
+    /**
+     * Records the conversion and, when it succeeded for an authenticated user, charges {@code credits}.
+     *
+     * @throws RuntimeException with message {@code LOG_SAVE_FAILED} if nothing could be persisted
+     */
+    public Result record(Conversion conversion, User user, long credits, String description) {
+        long start = System.nanoTime();
+        BookkeepingEvent event = new BookkeepingEvent();
+        event.begin();
+        event.method = "function";
+        event.authenticated = user != null;
+        event.resultCode = "LOG_SAVE_FAILED";
+        try {
+            Result result;
+            try {
+                result = recordWithFunction(conversion, user, credits, description);
+            } catch (DataAccessException e) {
+                if (!isUndefinedFunction(e)) {
+                    throw e;
+                }
+                log.warn("record_conversion function missing, using JPA bookkeeping");
+                event.method = "jpa";
+                result = recordWithRepositories(conversion, user, credits, description);
+            }
+            event.resultCode = result.code();
+            remember(conversion, user, credits, result);
+            long dbNanos = System.nanoTime() - start;
+            log.info("Recorded conversion {} for user {} with result {} in {} ms", result.conversionId(),
+                    user != null ? user.getEmail() : "ANONYMOUS", result.code(), dbNanos / 1_000_000);
+            return new Result(result.code(), result.conversionId(), result.remainingCredits(), dbNanos);
+        } catch (Exception e) {
+            log.error("CRITICAL: Failed to save conversion log: {}. This will bypass limits!", e.getMessage(), e);
+            throw new RuntimeException("LOG_SAVE_FAILED", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * The refusal {@link #record} is known to give this client, from memory only; {@link #OK} when there
+     * is no current marker, leaving the decision to {@link #record}.
+     */
+    public String precheck(User user, String ipAddress) {
+        String key = user != null ? "user:" + user.getId() : "ip:" + ipAddress;
+        Exhausted marker = exhausted.get(key);
+        if (marker == null) {
+            return OK;
+        }
+        if (marker.expiresAtMillis() < System.currentTimeMillis()) {
+            exhausted.remove(key, marker);
+            return OK;
+        }
+        return marker.code();
+    }
+
+    private void remember(Conversion conversion, User user, long credits, Result result) {
+        String key;
+        String code;
+        long ttlMs;
+        if (user == null) {
+            // One free conversion per address: a recorded success uses it up as surely as a refusal shows it
+            if (!result.isOk() && !ANONYMOUS_LIMIT_REACHED.equals(result.code())) {
+                return;
+            }
+            key = "ip:" + conversion.getIpAddress();
+            code = ANONYMOUS_LIMIT_REACHED;
+            ttlMs = anonymousMarkerTtlMs;
+        } else if (INSUFFICIENT_CREDITS.equals(result.code())
+                || result.isOk() && conversion.getStatus() == Conversion.Status.SUCCESS
+                        && result.remainingCredits() < credits) {
+            key = "user:" + user.getId();
+            code = INSUFFICIENT_CREDITS;
+            ttlMs = userMarkerTtlMs;
+        } else {
+            if (user.getId() != null) {
+                exhausted.remove("user:" + user.getId());
+            }
+            return;
+        }
+        if (exhausted.size() >= MAX_MARKERS) {
+            long now = System.currentTimeMillis();
+            exhausted.values().removeIf(marker -> marker.expiresAtMillis() < now);
+            if (exhausted.size() >= MAX_MARKERS) {
+                exhausted.clear();
+            }
+        }
+        exhausted.put(key, new Exhausted(code, System.currentTimeMillis() + ttlMs));
+    }
+
+    private Result recordWithFunction(Conversion conversion, User user, long credits, String description) {
+        ConversionMetadata metadata = conversion.getMetadata() != null
+                ? conversion.getMetadata() : new ConversionMetadata();
+        return jdbcTemplate.queryForObject(RECORD_CONVERSION_SQL,
+                (rs, rowNum) -> new Result(
+                        rs.getString("result_code"),
+                        rs.getObject("result_conversion_id", UUID.class),
+                        rs.getLong("result_remaining_credits"),
+                        0L),
+                user != null ? user.getId() : null,
+                conversion.getIpAddress(),
+                conversion.getConversionType(),
+                conversion.getStatus().name(),
+                conversion.getInputContent(),
+                conversion.getOutputContent(),
+                conversion.getErrorMessage(),
+                metadata.getMessageType(),
+                metadata.getReference(),
+                metadata.getUetr(),
+                metadata.getSenderBic(),
+                metadata.getReceiverBic(),
+                metadata.getAmount(),
+                metadata.getCurrency(),
+                credits,
+                description);
+    }
+
+    private Result recordWithRepositories(Conversion conversion, User user, long credits, String description) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            User lockedUser = user != null ? userRepository.findByEmailForUpdate(user.getEmail()).orElse(null) : null;
+
+            String code = OK;
+            long remaining = 0;
+            if (lockedUser == null) {
+                // Same per-IP lock as record_conversion, so concurrent attempts cannot both pass the quota check
+                jdbcTemplate.query(ANONYMOUS_LOCK_SQL, rs -> {
+                }, "anonymous:" + (conversion.getIpAddress() != null ? conversion.getIpAddress() : ""));
+                if (conversionRepository.countByIpAddressAndUserIsNull(conversion.getIpAddress()) >= 1) {
+                    code = "ANONYMOUS_LIMIT_REACHED";
+                }
+            } else {
+                creditPurchaseRepository.markExpiredPurchases(lockedUser, now);
+                Long purchased = creditPurchaseRepository.getAvailableCredits(lockedUser, now);
+                remaining = lockedUser.getCredits() + (purchased != null ? purchased : 0L);
+                if (remaining < credits) {
+                    code = "INSUFFICIENT_CREDITS";
+                }
+            }
+
+            if (!OK.equals(code)) {
+                conversion.setStatus(Conversion.Status.FAILED);
+                conversion.setErrorMessage(code);
+                conversion.setOutputContent(null);
+            }
+            conversion.setUser(lockedUser);
+            conversionRepository.save(conversion);
+
+            if (OK.equals(code) && lockedUser != null && conversion.getStatus() == Conversion.Status.SUCCESS) {
+                creditService.recordCreditUsage(lockedUser, credits, conversion.getConversionType(), description,
+                        conversion);
+                remaining -= credits;
+            }
+            return new Result(code, conversion.getId(), remaining, 0L);
+        });
+    }
+
+    private boolean isUndefinedFunction(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        return cause instanceof SQLException sqlException
+                && UNDEFINED_FUNCTION.equals(sqlException.getSQLState());
+    }
+}
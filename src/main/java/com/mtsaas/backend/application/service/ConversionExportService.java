@@ -0,0 +1,273 @@
+package com.mtsaas.backend.application.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mtsaas.backend.infrastructure.archive.ConversionArchiveStore;
+import com.mtsaas.backend.infrastructure.archive.ConversionArchiveStore.ArchivedPayload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a user's conversion history as CSV or NDJSON.
+ *
+ * Rows are read in keyset-ordered batches through a forward-only, read-only cursor with a bounded
+ * fetch size. Each batch runs in its own short read-only transaction and is fully written to the
+ * client only after the connection has gone back to the pool, so memory stays bounded by the batch
+ * size and a slow client never pins one of the pooled connections.
+ */
+@Service
+@Slf4j
+public class ConversionExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParameter(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    private static final String BASE_COLUMNS =
+            "id, conversion_type, status, source_format, target_format, error_message, created_at";
+    private static final String PAYLOAD_COLUMNS = ", input_content, output_content, archive_segment";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ConversionArchiveStore archiveStore;
+
+    @Value("${app.export.batch-size:500}")
+    private int batchSize;
+
+    public ConversionExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ConversionArchiveStore archiveStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveStore = archiveStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void export(UUID userId, Format format, boolean includePayloads, boolean gzip, OutputStream target)
+            throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(target, 64 * 1024) : target;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+
+        if (format == Format.CSV) {
+            writer.write("id,conversion_type,status,source_format,target_format,error_message,created_at");
+            if (includePayloads) {
+                writer.write(",input_content,output_content");
+            }
+            writer.write('\n');
+        } else {
+            json = JSON_FACTORY.createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.setRootValueSeparator(null);
+        }
+
+        long exported = 0;
+        Timestamp lastCreatedAt = null;
+        UUID lastId = null;
+        while (true) {
+            List<ExportRow> batch = fetchBatch(userId, lastCreatedAt, lastId, includePayloads);
+            for (ExportRow row : batch) {
+                if (json != null) {
+                    writeJson(json, row, includePayloads);
+                    json.flush();
+                    writer.write('\n');
+                } else {
+                    writeCsv(writer, row, includePayloads);
+                }
+            }
+            exported += batch.size();
+            writer.flush();
+
+            if (batch.size() < batchSize) {
+                break;
+            }
+            ExportRow last = batch.get(batch.size() - 1);
+            lastCreatedAt = last.createdAt();
+            lastId = last.id();
+        }
+
+        writer.flush();
+        if (out instanceof GZIPOutputStream gzipOut) {
+            gzipOut.finish();
+        }
+        log.info("Exported {} conversions for user {} as {}", exported, userId, format);
+    }
+
+    private List<ExportRow> fetchBatch(UUID userId, Timestamp afterCreatedAt, UUID afterId, boolean includePayloads) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(BASE_COLUMNS);
+        if (includePayloads) {
+            sql.append(PAYLOAD_COLUMNS);
+        }
+        sql.append(" FROM conversions WHERE user_id = ?");
+        if (afterCreatedAt != null) {
+            sql.append(" AND (created_at, id) > (?, ?)");
+        }
+        sql.append(" ORDER BY created_at, id LIMIT ?");
+
+        List<ExportRow> rows = new ArrayList<>(batchSize);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(batchSize);
+            int index = 1;
+            ps.setObject(index++, userId);
+            if (afterCreatedAt != null) {
+                ps.setTimestamp(index++, afterCreatedAt);
+                ps.setObject(index++, afterId);
+            }
+            ps.setInt(index, batchSize);
+            return ps;
+        }, rs -> {
+            rows.add(mapRow(rs, includePayloads));
+        }));
+        return includePayloads ? restoreArchivedPayloads(rows) : rows;
+    }
+
+    private List<ExportRow> restoreArchivedPayloads(List<ExportRow> rows) {
+        Map<String, List<UUID>> archivedIds = rows.stream()
+                .filter(row -> row.archiveSegment() != null)
+                .collect(Collectors.groupingBy(ExportRow::archiveSegment,
+                        Collectors.mapping(ExportRow::id, Collectors.toList())));
+        if (archivedIds.isEmpty()) {
+            return rows;
+        }
+        Map<UUID, ArchivedPayload> payloads = new HashMap<>();
+        archivedIds.forEach((segment, ids) -> payloads.putAll(archiveStore.readAll(segment, ids)));
+
+        List<ExportRow> restored = new ArrayList<>(rows.size());
+        for (ExportRow row : rows) {
+            ArchivedPayload payload = payloads.get(row.id());
+            restored.add(payload == null ? row : new ExportRow(row.id(), row.conversionType(), row.status(),
+                    row.sourceFormat(), row.targetFormat(), row.errorMessage(), row.createdAt(),
+                    payload.inputContent(), payload.outputContent(), row.archiveSegment()));
+        }
+        return restored;
+    }
+
+    private ExportRow mapRow(ResultSet rs, boolean includePayloads) throws SQLException {
+        return new ExportRow(
+                rs.getObject("id", UUID.class),
+                rs.getString("conversion_type"),
+                rs.getString("status"),
+                rs.getString("source_format"),
+                rs.getString("target_format"),
+                rs.getString("error_message"),
+                rs.getTimestamp("created_at"),
+                includePayloads ? rs.getString("input_content") : null,
+                includePayloads ? rs.getString("output_content") : null,
+                includePayloads ? rs.getString("archive_segment") : null);
+    }
+
+    private void writeCsv(Writer writer, ExportRow row, boolean includePayloads) throws IOException {
+        writer.write(row.id().toString());
+        writer.write(',');
+        writeCsvValue(writer, row.conversionType());
+        writer.write(',');
+        writeCsvValue(writer, row.status());
+        writer.write(',');
+        writeCsvValue(writer, row.sourceFormat());
+        writer.write(',');
+        writeCsvValue(writer, row.targetFormat());
+        writer.write(',');
+        writeCsvValue(writer, row.errorMessage());
+        writer.write(',');
+        writeCsvValue(writer, row.createdAt() != null ? row.createdAt().toLocalDateTime().toString() : null);
+        if (includePayloads) {
+            writer.write(',');
+            writeCsvValue(writer, row.inputContent());
+            writer.write(',');
+            writeCsvValue(writer, row.outputContent());
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuoting = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuoting) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeJson(JsonGenerator json, ExportRow row, boolean includePayloads) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", row.id().toString());
+        json.writeStringField("conversionType", row.conversionType());
+        json.writeStringField("status", row.status());
+        json.writeStringField("sourceFormat", row.sourceFormat());
+        json.writeStringField("targetFormat", row.targetFormat());
+        json.writeStringField("errorMessage", row.errorMessage());
+        json.writeStringField("createdAt",
+                row.createdAt() != null ? row.createdAt().toLocalDateTime().toString() : null);
+        if (includePayloads) {
+            json.writeStringField("inputContent", row.inputContent());
+            json.writeStringField("outputContent", row.outputContent());
+        }
+        json.writeEndObject();
+    }
+
+    private record ExportRow(UUID id, String conversionType, String status, String sourceFormat,
+            String targetFormat, String errorMessage, Timestamp createdAt, String inputContent,
+            String outputContent, String archiveSegment) {
+    }
+}
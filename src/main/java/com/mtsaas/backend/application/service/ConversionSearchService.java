@@ -0,0 +1,109 @@
+package com.mtsaas.backend.application.service;
+
+import com.mtsaas.backend.dto.ConversionSearchCriteria;
+import com.mtsaas.backend.dto.ConversionSearchResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Searches conversions by the metadata columns extracted at conversion time. Only the indexed
+ * metadata columns are selected, so payload TEXT columns are never read (or detoasted).
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversionSearchService {
+
+    private static final int MAX_LIMIT = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<ConversionSearchResult> search(ConversionSearchCriteria criteria) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, conversion_type, status, message_type, reference, uetr, sender_bic, receiver_bic, "
+                        + "amount, currency, created_at FROM conversions WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+
+        if (criteria.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+            args.add(criteria.getUserId());
+        }
+        if (hasText(criteria.getReference())) {
+            sql.append(" AND reference LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(criteria.getReference().trim()) + "%");
+        }
+        if (hasText(criteria.getUetr())) {
+            sql.append(" AND uetr = ?");
+            args.add(criteria.getUetr().trim().toLowerCase(Locale.ROOT));
+        }
+        if (hasText(criteria.getBic())) {
+            String bicPrefix = escapeLike(normalizeBic(criteria.getBic())) + "%";
+            sql.append(" AND (sender_bic LIKE ? ESCAPE '\\' OR receiver_bic LIKE ? ESCAPE '\\')");
+            args.add(bicPrefix);
+            args.add(bicPrefix);
+        }
+        if (hasText(criteria.getSenderBic())) {
+            sql.append(" AND sender_bic LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(normalizeBic(criteria.getSenderBic())) + "%");
+        }
+        if (hasText(criteria.getReceiverBic())) {
+            sql.append(" AND receiver_bic LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(normalizeBic(criteria.getReceiverBic())) + "%");
+        }
+        if (criteria.getAmount() != null) {
+            sql.append(" AND amount = ?");
+            args.add(criteria.getAmount());
+        }
+        if (criteria.getMinAmount() != null) {
+            sql.append(" AND amount >= ?");
+            args.add(criteria.getMinAmount());
+        }
+        if (criteria.getMaxAmount() != null) {
+            sql.append(" AND amount <= ?");
+            args.add(criteria.getMaxAmount());
+        }
+        if (hasText(criteria.getCurrency())) {
+            sql.append(" AND currency = ?");
+            args.add(criteria.getCurrency().trim().toUpperCase(Locale.ROOT));
+        }
+
+        int limit = criteria.getLimit() <= 0 ? 50 : Math.min(criteria.getLimit(), MAX_LIMIT);
+        sql.append(" ORDER BY created_at DESC LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            return ConversionSearchResult.builder()
+                    .id(rs.getObject("id", UUID.class))
+                    .conversionType(rs.getString("conversion_type"))
+                    .status(rs.getString("status"))
+                    .messageType(rs.getString("message_type"))
+                    .reference(rs.getString("reference"))
+                    .uetr(rs.getString("uetr"))
+                    .senderBic(rs.getString("sender_bic"))
+                    .receiverBic(rs.getString("receiver_bic"))
+                    .amount(rs.getBigDecimal("amount"))
+                    .currency(rs.getString("currency"))
+                    .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                    .build();
+        }, args.toArray());
+    }
+
+    private boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private String normalizeBic(String bic) {
+        return bic.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,25 +1,30 @@
 package com.mtsaas.backend.application.service;
 
 import com.mtsaas.backend.domain.Conversion;
+import com.mtsaas.backend.domain.ConversionMetadata;
 import com.mtsaas.backend.domain.User;
 import com.mtsaas.backend.domain.swift.mt.MtGenerator;
+import com.mtsaas.backend.domain.swift.mt.MtMessage;
 import com.mtsaas.backend.domain.swift.mt.MtParser;
 import com.mtsaas.backend.domain.swift.mx.MxGenerator;
+import com.mtsaas.backend.domain.swift.mx.MxMessage;
 import com.mtsaas.backend.domain.swift.mx.MxParser;
-import com.mtsaas.backend.infrastructure.repository.ConversionRepository;
+import com.mtsaas.backend.infrastructure.metrics.ConversionMetrics;
 import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import com.mtsaas.backend.infrastructure.security.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 //import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 //@Lazy
@@ -28,233 +33,309 @@ public class ConversionService {
 
     private static final Logger log = LoggerFactory.getLogger(ConversionService.class);
 
+    /** Parsed MT input together with the generator that will convert it. */
+    public record MtPreflight(MtMessage message, MxGenerator generator) {
+    }
+
+    /** Parsed MX input together with its resolved type and the generator that will convert it. */
+    public record MxPreflight(MxMessage message, String type, MtGenerator generator) {
+    }
+
     private final MtParser mtParser;
     private final MxParser mxParser;
     private final List<MxGenerator> mxGenerators;
     private final List<MtGenerator> mtGenerators;
-    private final ConversionRepository conversionRepository;
     private final UserRepository userRepository;
-    private final CreditService creditService;
+    private final ConversionBookkeepingService bookkeepingService;
+    private final ConversionMetrics conversionMetrics;
 
     private String getClientIp() {
         try {
             HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
                     .getRequest();
-            String ipAddress = request.getHeader("X-Forwarded-For");
-            if (ipAddress == null || ipAddress.isEmpty() || "unknown".equalsIgnoreCase(ipAddress)) {
-                ipAddress = request.getHeader("Proxy-Client-IP");
+            return ClientIpResolver.resolve(request);
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private User getCurrentUser() {
+        try {
+            var auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth == null || !auth.isAuthenticated()) {
+                log.debug("No authentication or not authenticated");
+                return null;
             }
-            if (ipAddress == null || ipAddress.isEmpty() || "unknown".equalsIgnoreCase(ipAddress)) {
-                ipAddress = request.getHeader("WL-Proxy-Client-IP");
+            // The JWT filter already loaded the user for this request; reuse it instead of querying again
+            if (auth.getPrincipal() instanceof SecurityUser securityUser) {
+                return securityUser.getUser();
             }
-            if (ipAddress == null || ipAddress.isEmpty() || "unknown".equalsIgnoreCase(ipAddress)) {
-                ipAddress = request.getRemoteAddr();
+            String name = auth.getName();
+            if (name != null && !"anonymousUser".equalsIgnoreCase(name)) {
+                return userRepository.findByEmail(name).orElse(null);
             }
-            return ipAddress;
         } catch (Exception e) {
-            return "unknown";
+            log.warn("Error getting authentication: {}", e.getMessage());
         }
+        return null;
     }
 
-    public String convertMtToMx(String mtContent, String messageType) {
-        User user = null;
-        Conversion conversion = new Conversion();
-        String ipAddress = getClientIp();
+    /**
+     * Cheap syntactic checks: parses the MT input and resolves its generator. Runs purely in memory, so
+     * malformed or unsupported input is rejected before any database access.
+     */
+    public MtPreflight preflightMt(String mtContent, String messageType) {
+        MtMessage mtMessage = parseMt(mtContent, messageType);
+        return new MtPreflight(mtMessage, mxGeneratorFor(mtMessage));
+    }
 
-        try {
-            // 1. Get Current User and IP
-            log.info("Starting conversion for IP: {}", ipAddress);
-            try {
-                var auth = SecurityContextHolder.getContext().getAuthentication();
-                if (auth != null && auth.isAuthenticated()) {
-                    String name = auth.getName();
-                    log.debug("Auth found: {}, name: {}", auth.getClass().getSimpleName(), name);
-                    if (name != null && !"anonymousUser".equalsIgnoreCase(name)) {
-                        user = userRepository.findByEmail(name).orElse(null);
-                    }
-                } else {
-                    log.debug("No authentication or not authenticated");
-                }
-            } catch (Exception e) {
-                log.warn("Error getting authentication: {}", e.getMessage());
-            }
+    private MtMessage parseMt(String mtContent, String messageType) {
+        MtMessage mtMessage = mtParser.parse(mtContent);
+        if (mtMessage.getTags() == null || mtMessage.getTags().isEmpty()) {
+            throw new IllegalArgumentException("Invalid MT message: no fields found");
+        }
 
-            log.info("User identified: {}", user != null ? user.getEmail() : "ANONYMOUS");
-
-            // 2. Set up initial conversion log fields (CRITICAL for failure logging)
-            conversion.setUser(user);
-            conversion.setConversionType("MT_TO_MX");
-            conversion.setInputContent(mtContent);
-            conversion.setIpAddress(ipAddress);
-            conversion.setStatus(Conversion.Status.SUCCESS); // Default to SUCCESS, updated to FAILED in catch
-
-            // 3. Performance Credit Check
-            if (user == null) {
-                // Anonymous user check
-                long anonymousCount = conversionRepository.countByIpAddressAndUserIsNull(ipAddress);
-                log.info("Anonymous conversion count for IP {}: {}", ipAddress, anonymousCount);
-                if (anonymousCount >= 1) {
-                    log.warn("Anonymous limit reached for IP: {}", ipAddress);
-                    throw new RuntimeException("ANONYMOUS_LIMIT_REACHED");
-                }
-            } else {
-                // Authenticated user check - use CreditService to get actual available credits
-                long availableCredits = creditService.getUserCreditBalance(user.getEmail()).getAvailableCredits();
-                log.info("User {} has {} available credits", user.getEmail(), availableCredits);
-                if (availableCredits <= 0) {
-                    log.warn("Insufficient credits for conversion - user {} has 0 credits", user.getEmail());
-                    throw new RuntimeException("INSUFFICIENT_CREDITS");
-                }
-            }
+        // Override type if provided and valid
+        if (messageType != null && !messageType.isBlank()) {
+            // Remove "MT" prefix if present
+            mtMessage.setType(messageType.toUpperCase().startsWith("MT") ? messageType.substring(2) : messageType);
+        }
+        return mtMessage;
+    }
 
-            // 4. Parse MT
-            var mtMessage = mtParser.parse(mtContent);
+    private MxGenerator mxGeneratorFor(MtMessage mtMessage) {
+        return mxGenerators.stream()
+                .filter(g -> g.supports(mtMessage.getType()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Unsupported MT type: " + mtMessage.getType()));
+    }
 
-            // Override type if provided and valid
-            if (messageType != null && !messageType.isBlank()) {
-                // Remove "MT" prefix if present
-                String typeCode = messageType.toUpperCase().startsWith("MT") ? messageType.substring(2) : messageType;
-                mtMessage.setType(typeCode);
-            }
+    public String convertMtToMx(String mtContent, String messageType) {
+        try (ConversionMetrics.Stages stages = conversionMetrics.start(ConversionMetrics.MT_TO_MX)) {
+            return convertMtToMx(mtContent, messageType, stages);
+        }
+    }
 
-            // 5. Find Generator
-            var generator = mxGenerators.stream()
-                    .filter(g -> g.supports(mtMessage.getType()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Unsupported MT type: " + mtMessage.getType()));
+    private String convertMtToMx(String mtContent, String messageType, ConversionMetrics.Stages stages) {
+        String ipAddress = getClientIp();
+        log.info("Starting conversion for IP: {}", ipAddress);
 
-            // 6. Generate MX
-            String mxXml = generator.generate(mtMessage);
-            conversion.setOutputContent(mxXml);
+        // 1. Pre-flight: parse and resolve generator; rejected input is neither logged nor charged
+        long conversionStart = System.nanoTime();
+        MtPreflight preflight;
+        try {
+            MtMessage parsed = stages.time("parse", () -> parseMt(mtContent, messageType));
+            preflight = new MtPreflight(parsed, stages.time("dispatch", () -> mxGeneratorFor(parsed)));
+            // Tag only supported types: the type comes from the request and would otherwise be unbounded
+            stages.type(parsed.getType());
+        } catch (RuntimeException e) {
+            log.info("MT input rejected in pre-flight: {}", e.getMessage());
+            stages.fail(e instanceof IllegalArgumentException ? "INVALID_INPUT" : "UNSUPPORTED_TYPE");
+            throw e;
+        }
+        MtMessage mtMessage = preflight.message();
 
-            // 7. Save Conversion Log
-            saveConversionLog(conversion);
+        User user = stages.time("auth", this::getCurrentUser);
+        log.info("User identified: {}", user != null ? user.getEmail() : "ANONYMOUS");
 
-            // 8. Deduct Credit Only for Authenticated Users
-            if (user != null) {
-                creditService.recordCreditUsage(user, 1L, "MT_TO_MX",
-                        "Converted MT message of type " + mtMessage.getType(), conversion);
+        Conversion conversion = new Conversion();
+        conversion.setConversionType("MT_TO_MX");
+        conversion.setInputContent(mtContent);
+        conversion.setIpAddress(ipAddress);
+        conversion.setStatus(Conversion.Status.SUCCESS); // Updated to FAILED below if generation throws
+        conversion.setMetadata(ConversionMetadata.fromMt(mtMessage));
+
+        // 2. Generate MX, unless the quota or credits are already known to be used up
+        String precheck = precheck(stages, conversion, user);
+        String mxXml = null;
+        RuntimeException failure = null;
+        if (!ConversionBookkeepingService.OK.equals(precheck)) {
+            stages.sizes(mtContent.length(), 0);
+        } else {
+            try {
+                mxXml = stages.time("generate", () -> preflight.generator().generate(mtMessage));
+                conversion.setOutputContent(mxXml);
+                stages.sizes(mtContent.length(), mxXml.length());
+            } catch (RuntimeException e) {
+                conversion.setStatus(Conversion.Status.FAILED);
+                conversion.setErrorMessage(e.getMessage());
+                stages.fail(stages.nestedStageFailed() ? "VALIDATION_FAILED" : "GENERATION_FAILED");
+                stages.sizes(mtContent.length(), 0);
+                failure = e;
             }
+        }
+        long conversionNanos = System.nanoTime() - conversionStart;
 
-            return mxXml;
+        // 3. Quota/credit check, conversion log and credit deduction in one round trip
+        var result = record(stages, conversion, user, "Converted MT message of type " + mtMessage.getType());
+        reportTiming(conversionNanos, result.dbNanos());
 
-        } catch (Exception e) {
-            conversion.setStatus(Conversion.Status.FAILED);
-            conversion.setErrorMessage(e.getMessage());
-            saveConversionLog(conversion);
-            throw e;
+        if (!result.isOk() || !ConversionBookkeepingService.OK.equals(precheck)) {
+            // A refused pre-check is final even if credits arrived meanwhile: nothing was generated
+            String code = result.isOk() ? precheck : result.code();
+            if (result.isOk()) {
+                stages.fail(code);
+            }
+            log.warn("Conversion rejected for {}: {}", user != null ? user.getEmail() : ipAddress, code);
+            throw new RuntimeException(code);
+        }
+        if (failure != null) {
+            throw failure;
         }
+        return mxXml;
     }
 
-    @Transactional
-    public void saveConversionLog(Conversion conversion) {
-        if (conversion == null) {
-            log.warn("Attempted to save null conversion log");
-            return;
-        }
-        try {
-            conversionRepository.save(conversion);
-            log.info("Saved conversion log with ID: {} for user: {}",
-                    conversion.getId(), extractionUserEmail(conversion.getUser()));
-        } catch (Exception e) {
-            log.error("CRITICAL: Failed to save conversion log: {}. This will bypass limits!", e.getMessage(), e);
-            throw new RuntimeException("LOG_SAVE_FAILED", e);
+    /**
+     * Cheap syntactic checks: parses the MX input and resolves its type and generator, in memory only.
+     */
+    public MxPreflight preflightMx(String mxContent, String messageType) {
+        MxMessage mxMessage = mxParser.parse(mxContent);
+        String mxType = resolveMxType(mxMessage, messageType);
+        return new MxPreflight(mxMessage, mxType, mtGeneratorFor(mxType));
+    }
+
+    private String resolveMxType(MxMessage mxMessage, String messageType) {
+        // Determine message type if not provided
+        if (messageType != null && !messageType.isBlank()) {
+            return messageType;
+        } else if (mxMessage.getMessageType() != null && !mxMessage.getMessageType().isBlank()) {
+            return mxMessage.getMessageType();
         }
+        throw new IllegalArgumentException("Could not determine MX message type");
     }
 
-    private String extractionUserEmail(User user) {
-        return user != null ? user.getEmail() : "ANONYMOUS";
+    private MtGenerator mtGeneratorFor(String mxType) {
+        return mtGenerators.stream()
+                .filter(g -> g.supports(mxType))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Unsupported MX type: " + mxType));
     }
 
     /**
      * Convert MX (ISO 20022) message to MT (SWIFT FIN) format.
      */
     public String convertMxToMt(String mxContent, String messageType) {
-        User user = null;
-        Conversion conversion = new Conversion();
+        try (ConversionMetrics.Stages stages = conversionMetrics.start(ConversionMetrics.MX_TO_MT)) {
+            return convertMxToMt(mxContent, messageType, stages);
+        }
+    }
+
+    private String convertMxToMt(String mxContent, String messageType, ConversionMetrics.Stages stages) {
         String ipAddress = getClientIp();
+        log.info("Starting MX to MT conversion for IP: {}", ipAddress);
 
+        // 1. Pre-flight: parse and resolve generator; rejected input is neither logged nor charged
+        long conversionStart = System.nanoTime();
+        MxPreflight preflight;
         try {
-            // 1. Get Current User and IP
-            log.info("Starting MX to MT conversion for IP: {}", ipAddress);
-            try {
-                var auth = SecurityContextHolder.getContext().getAuthentication();
-                if (auth != null && auth.isAuthenticated()) {
-                    String name = auth.getName();
-                    if (name != null && !"anonymousUser".equalsIgnoreCase(name)) {
-                        user = userRepository.findByEmail(name).orElse(null);
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Error getting authentication: {}", e.getMessage());
-            }
+            MxMessage parsed = stages.time("parse", () -> mxParser.parse(mxContent));
+            String mxType = resolveMxType(parsed, messageType);
+            preflight = new MxPreflight(parsed, mxType, stages.time("dispatch", () -> mtGeneratorFor(mxType)));
+            stages.type(mxType);
+        } catch (RuntimeException e) {
+            log.info("MX input rejected in pre-flight: {}", e.getMessage());
+            stages.fail(e instanceof IllegalArgumentException ? "INVALID_INPUT" : "UNSUPPORTED_TYPE");
+            throw e;
+        }
+        MxMessage mxMessage = preflight.message();
 
-            log.info("User identified: {}", user != null ? user.getEmail() : "ANONYMOUS");
-
-            // 2. Set up conversion log
-            conversion.setUser(user);
-            conversion.setConversionType("MX_TO_MT");
-            conversion.setInputContent(mxContent);
-            conversion.setIpAddress(ipAddress);
-            conversion.setStatus(Conversion.Status.SUCCESS);
-
-            // 3. Credit Check
-            if (user == null) {
-                long anonymousCount = conversionRepository.countByIpAddressAndUserIsNull(ipAddress);
-                log.info("Anonymous conversion count for IP {}: {}", ipAddress, anonymousCount);
-                if (anonymousCount >= 1) {
-                    log.warn("Anonymous limit reached for IP: {}", ipAddress);
-                    throw new RuntimeException("ANONYMOUS_LIMIT_REACHED");
-                }
-            } else {
-                // Authenticated user check - use CreditService to get actual available credits
-                long availableCredits = creditService.getUserCreditBalance(user.getEmail()).getAvailableCredits();
-                log.info("User {} has {} available credits", user.getEmail(), availableCredits);
-                if (availableCredits <= 0) {
-                    log.warn("Insufficient credits for conversion - user {} has 0 credits", user.getEmail());
-                    throw new RuntimeException("INSUFFICIENT_CREDITS");
-                }
-            }
+        User user = stages.time("auth", this::getCurrentUser);
+        log.info("User identified: {}", user != null ? user.getEmail() : "ANONYMOUS");
 
-            // 4. Parse MX
-            var mxMessage = mxParser.parse(mxContent);
-
-            // Determine message type if not provided
-            final String mxType;
-            if (messageType != null && !messageType.isBlank()) {
-                mxType = messageType;
-            } else if (mxMessage.getMessageType() != null && !mxMessage.getMessageType().isBlank()) {
-                mxType = mxMessage.getMessageType();
-            } else {
-                throw new RuntimeException("Could not determine MX message type");
+        Conversion conversion = new Conversion();
+        conversion.setConversionType("MX_TO_MT");
+        conversion.setInputContent(mxContent);
+        conversion.setIpAddress(ipAddress);
+        conversion.setStatus(Conversion.Status.SUCCESS);
+        conversion.setMetadata(ConversionMetadata.fromMx(mxMessage));
+
+        // 2. Generate MT, unless the quota or credits are already known to be used up
+        String precheck = precheck(stages, conversion, user);
+        String mtContent = null;
+        RuntimeException failure = null;
+        if (!ConversionBookkeepingService.OK.equals(precheck)) {
+            stages.sizes(mxContent.length(), 0);
+        } else {
+            try {
+                mtContent = stages.time("generate", () -> preflight.generator().generate(mxMessage));
+                conversion.setOutputContent(mtContent);
+                stages.sizes(mxContent.length(), mtContent.length());
+            } catch (RuntimeException e) {
+                conversion.setStatus(Conversion.Status.FAILED);
+                conversion.setErrorMessage(e.getMessage());
+                stages.fail("GENERATION_FAILED");
+                stages.sizes(mxContent.length(), 0);
+                failure = e;
             }
+        }
+        long conversionNanos = System.nanoTime() - conversionStart;
 
-            // 5. Find Generator
-            var generator = mtGenerators.stream()
-                    .filter(g -> g.supports(mxType))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Unsupported MX type: " + mxType));
-
-            // 6. Generate MT
-            String mtContent = generator.generate(mxMessage);
-            conversion.setOutputContent(mtContent);
-
-            // 7. Save Conversion Log
-            saveConversionLog(conversion);
+        // 3. Quota/credit check, conversion log and credit deduction in one round trip
+        var result = record(stages, conversion, user, "Converted MX message of type " + preflight.type());
+        reportTiming(conversionNanos, result.dbNanos());
 
-            // 8. Deduct Credit
-            if (user != null) {
-                creditService.recordCreditUsage(user, 1L, "MX_TO_MT",
-                        "Converted MX message of type " + mxType, conversion);
+        if (!result.isOk() || !ConversionBookkeepingService.OK.equals(precheck)) {
+            // A refused pre-check is final even if credits arrived meanwhile: nothing was generated
+            String code = result.isOk() ? precheck : result.code();
+            if (result.isOk()) {
+                stages.fail(code);
             }
+            log.warn("Conversion rejected for {}: {}", user != null ? user.getEmail() : ipAddress, code);
+            throw new RuntimeException(code);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return mtContent;
+    }
 
-            return mtContent;
-
-        } catch (Exception e) {
+    /**
+     * In-memory quota or credit check before generation, from what bookkeeping last answered for this
+     * client. A refusal marks the conversion as failed with the code; it is still recorded, where the
+     * authoritative check logs the attempt like any other refusal.
+     */
+    private String precheck(ConversionMetrics.Stages stages, Conversion conversion, User user) {
+        String code = stages.time("precheck",
+                () -> bookkeepingService.precheck(user, conversion.getIpAddress()));
+        if (!ConversionBookkeepingService.OK.equals(code)) {
             conversion.setStatus(Conversion.Status.FAILED);
-            conversion.setErrorMessage(e.getMessage());
-            saveConversionLog(conversion);
+            conversion.setErrorMessage(code);
+        }
+        return code;
+    }
+
+    private ConversionBookkeepingService.Result record(ConversionMetrics.Stages stages, Conversion conversion,
+            User user, String description) {
+        ConversionBookkeepingService.Result result;
+        try {
+            result = stages.time("bookkeeping", () -> bookkeepingService.record(conversion, user, 1L, description));
+        } catch (RuntimeException e) {
+            stages.fail("LOG_SAVE_FAILED".equals(e.getMessage()) ? "LOG_SAVE_FAILED" : "BOOKKEEPING_FAILED");
             throw e;
         }
+        if (!result.isOk()) {
+            stages.fail(result.code());
+        }
+        return result;
+    }
+
+    /**
+     * Reports conversion and database time separately, both in the log and as a Server-Timing header.
+     */
+    private void reportTiming(long conversionNanos, long dbNanos) {
+        double conversionMs = conversionNanos / 1_000_000.0;
+        double dbMs = dbNanos / 1_000_000.0;
+        log.info("Conversion took {} ms, bookkeeping took {} ms",
+                String.format("%.2f", conversionMs), String.format("%.2f", dbMs));
+        try {
+            HttpServletResponse response = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+                    .getResponse();
+            if (response != null) {
+                response.addHeader("Server-Timing", String.format(Locale.ROOT,
+                        "convert;dur=%.2f, db;dur=%.2f", conversionMs, dbMs));
+            }
+        } catch (IllegalStateException e) {
+            // Not called from a web request
+        }
     }
 }
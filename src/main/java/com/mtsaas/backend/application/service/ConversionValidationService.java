@@ -0,0 +1,102 @@
+package com.mtsaas.backend.application.service;
+
+import com.mtsaas.backend.domain.CbprValidator;
+import com.mtsaas.backend.domain.swift.mt.MtParser;
+import com.mtsaas.backend.dto.ValidationResponse;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dry-run validation of messages: runs the same parse, generation, XSD and CBPR+ checks as a real
+ * conversion but never touches the database, so it costs no credits and no connection.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversionValidationService {
+
+    private static final String ISO20022_NAMESPACE_PREFIX = "urn:iso:std:iso:20022:tech:xsd:";
+
+    private final ConversionService conversionService;
+    private final MtParser mtParser;
+    private final XmlValidator xmlValidator;
+
+    public ValidationResponse validateMt(String mtContent, String messageType) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+
+        ConversionService.MtPreflight preflight;
+        try {
+            preflight = conversionService.preflightMt(mtContent, messageType);
+        } catch (RuntimeException e) {
+            errors.add(e.getMessage());
+            return response("MT_TO_MX", null, errors, warnings);
+        }
+
+        warnings.addAll(CbprValidator.validateForType(preflight.message()));
+        try {
+            // Generators validate their input and the produced XML against the target XSD
+            preflight.generator().generate(preflight.message());
+        } catch (RuntimeException e) {
+            errors.add(e.getMessage());
+        }
+        return response("MT_TO_MX", "MT" + preflight.message().getType(), errors, warnings);
+    }
+
+    public ValidationResponse validateMx(String mxContent, String messageType) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+
+        ConversionService.MxPreflight preflight;
+        try {
+            preflight = conversionService.preflightMx(mxContent, messageType);
+        } catch (RuntimeException e) {
+            errors.add(e.getMessage());
+            return response("MX_TO_MT", null, errors, warnings);
+        }
+
+        // The schema follows the Document's own namespace, whatever type the caller named
+        String namespace = preflight.message().getDocumentNamespace();
+        if (namespace == null || !namespace.startsWith(ISO20022_NAMESPACE_PREFIX)) {
+            errors.add("MX Document has no ISO 20022 namespace" + (namespace != null ? ": " + namespace : ""));
+        } else {
+            String documentType = namespace.substring(ISO20022_NAMESPACE_PREFIX.length());
+            String xsdPath = "xsd/" + documentType + ".xsd";
+            if (xmlValidator.hasSchema(xsdPath)) {
+                try {
+                    // Validate only the Document part against the message XSD, as the generators do
+                    xmlValidator.validate(XmlValidator.extractDocument(mxContent), xsdPath);
+                } catch (RuntimeException e) {
+                    errors.add(e.getMessage());
+                }
+            } else {
+                warnings.add("No XSD available for " + documentType + "; schema validation skipped");
+            }
+        }
+
+        try {
+            String mtContent = preflight.generator().generate(preflight.message());
+            // CBPR+ rules are expressed on MT fields, so check the MT equivalent of the input
+            warnings.addAll(CbprValidator.validateForType(mtParser.parse(mtContent)));
+        } catch (RuntimeException e) {
+            errors.add(e.getMessage());
+        }
+        return response("MX_TO_MT", preflight.type(), errors, warnings);
+    }
+
+    private ValidationResponse response(String direction, String messageType, List<String> errors,
+            List<String> warnings) {
+        return ValidationResponse.builder()
+                .valid(errors.isEmpty())
+                .direction(direction)
+                .messageType(messageType)
+                .errors(errors)
+                .warnings(warnings)
+                .build();
+    }
+}
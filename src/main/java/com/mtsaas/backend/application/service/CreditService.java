@@ -250,8 +250,12 @@ public class CreditService {
 
                 log.info("Fulfilled purchase: {} credits for user: {}. Transaction: {}",
                                 amount, user.getEmail(), transactionId);
+        }
 
-                // Email sending
+        /**
+         * Sends the admin and customer purchase emails; call once the purchase is committed.
+         */
+        public void sendPurchaseNotifications(User user, long amount, String transactionId) {
                 try {
                         String packageName = determinePackageName(amount);
                         BigDecimal packagePrice = determinePackagePrice(amount);
@@ -6,6 +6,7 @@ import com.mtsaas.backend.domain.User;
 import com.mtsaas.backend.infrastructure.repository.FeedbackRepository;
 import com.mtsaas.backend.infrastructure.repository.UserRepository;
 import com.mtsaas.backend.infrastructure.email.EmailService;
+import com.mtsaas.backend.infrastructure.security.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -85,10 +86,6 @@ public class FeedbackService {
     }
 
     private String getClientIp(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0].trim();
+        return ClientIpResolver.resolve(request);
     }
 }
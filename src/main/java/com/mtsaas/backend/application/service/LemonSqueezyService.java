@@ -3,8 +3,11 @@ package com.mtsaas.backend.application.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mtsaas.backend.application.exception.PaymentConfigurationException;
 import com.mtsaas.backend.application.exception.PaymentGatewayUnavailableException;
+import com.mtsaas.backend.application.exception.UpstreamUnavailableException;
 import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.infrastructure.http.Upstream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -33,8 +36,18 @@ public class LemonSqueezyService {
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private static final String API_URL = "https://api.lemonsqueezy.com/v1/checkouts";
+    // Overridable so a local stub can stand in for Lemon Squeezy
+    @Value("${lemon-squeezy.api-url:https://api.lemonsqueezy.com/v1/checkouts}")
+    private String apiUrl;
+
+    private final RestTemplate restTemplate;
+    private final Upstream upstream;
+
+    public LemonSqueezyService(@Qualifier("lemonSqueezyRestTemplate") RestTemplate restTemplate,
+            @Qualifier("lemonSqueezyUpstream") Upstream upstream) {
+        this.restTemplate = restTemplate;
+        this.upstream = upstream;
+    }
 
     @PostConstruct
     public void init() {
@@ -119,7 +132,8 @@ public class LemonSqueezyService {
             log.debug("📤 Lemon Squeezy payload: {}", jsonPayload);
             
             HttpEntity<String> request = new HttpEntity<>(jsonPayload, headers);
-            ResponseEntity<String> response = restTemplate.exchange(API_URL, HttpMethod.POST, request, String.class);
+            ResponseEntity<String> response = upstream.call(
+                    () -> restTemplate.exchange(apiUrl, HttpMethod.POST, request, String.class));
             
             log.info("✅ Lemon Squeezy checkout created successfully for user: {}", user.getEmail());
             
@@ -134,6 +148,9 @@ public class LemonSqueezyService {
             log.error("❌ Lemon Squeezy checkout failed with status {} and body: {}",
                     e.getStatusCode(), e.getResponseBodyAsString(), e);
             throw new PaymentGatewayUnavailableException("Payment provider rejected checkout request", e);
+        } catch (UpstreamUnavailableException e) {
+            log.error("❌ Lemon Squeezy checkout not attempted or not completed: {}", e.getMessage());
+            throw new PaymentGatewayUnavailableException("Payment provider is currently unavailable", e);
         } catch (PaymentConfigurationException e) {
             throw e;
         } catch (Exception e) {
@@ -0,0 +1,255 @@
+package com.mtsaas.backend.application.service;
+
+import com.mtsaas.backend.dto.ValidationResponse;
+import com.mtsaas.backend.infrastructure.repository.ConversionRepository;
+import com.mtsaas.backend.infrastructure.repository.CreditPurchaseRepository;
+import com.mtsaas.backend.infrastructure.repository.CreditUsageRepository;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Warms the application up after startup, before it reports itself ready.
+ *
+ * With lazy initialization the first conversion would otherwise create the parsers, generators and
+ * repositories, compile the XSDs, initialize Hibernate, open the first pooled connections and run in the
+ * interpreter. The warm-up does that work instead, on its own thread once the application has started:
+ * it compiles every bundled XSD, touches the repositories, fills the connection pool up to its minimum
+ * idle size, pings Redis, sends one request through the web stack and then dry-runs the bundled corpus
+ * ({@code classpath:warmup/}) through {@link ConversionValidationService} until the configured number of
+ * rounds or time budget is spent. Dry runs cover every generator and the validator without writing
+ * anything or charging credits.
+ *
+ * Until it finishes, {@link #isReady()} is false and the readiness endpoints answer 503; at the end a
+ * {@link Finished} event is published. A failing step is logged and skipped: the warm-up only shifts
+ * work, so it never keeps the application out of service.
+ */
+@Service
+@Slf4j
+public class WarmUpService {
+
+    public enum State {
+        PENDING, RUNNING, DONE
+    }
+
+    public record Finished(long durationMs) {
+    }
+
+    private final ConversionValidationService validationService;
+    private final XmlValidator xmlValidator;
+    private final UserRepository userRepository;
+    private final ConversionRepository conversionRepository;
+    private final CreditPurchaseRepository creditPurchaseRepository;
+    private final CreditUsageRepository creditUsageRepository;
+    private final DataSource dataSource;
+    private final StringRedisTemplate redisTemplate;
+    private final Environment environment;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.warm-up.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.warm-up.rounds:20}")
+    private int rounds = 20;
+
+    @Value("${app.warm-up.max-duration-ms:30000}")
+    private long maxDurationMs = 30000;
+
+    private volatile State state = State.PENDING;
+    private volatile long durationMs;
+    private volatile int conversions;
+    private volatile int failedSteps;
+
+    public WarmUpService(ConversionValidationService validationService, XmlValidator xmlValidator,
+            UserRepository userRepository, ConversionRepository conversionRepository,
+            CreditPurchaseRepository creditPurchaseRepository, CreditUsageRepository creditUsageRepository,
+            DataSource dataSource, StringRedisTemplate redisTemplate, Environment environment,
+            ApplicationEventPublisher eventPublisher) {
+        this.validationService = validationService;
+        this.xmlValidator = xmlValidator;
+        this.userRepository = userRepository;
+        this.conversionRepository = conversionRepository;
+        this.creditPurchaseRepository = creditPurchaseRepository;
+        this.creditUsageRepository = creditUsageRepository;
+        this.dataSource = dataSource;
+        this.redisTemplate = redisTemplate;
+        this.environment = environment;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DONE;
+            eventPublisher.publishEvent(new Finished(0));
+            return;
+        }
+        Thread thread = new Thread(this::run, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return state == State.DONE;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * How long the warm-up took, or has taken so far.
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getConversions() {
+        return conversions;
+    }
+
+    public int getFailedSteps() {
+        return failedSteps;
+    }
+
+    private void run() {
+        state = State.RUNNING;
+        long start = System.nanoTime();
+        try {
+            step("XSD compilation", this::compileSchemas);
+            step("repositories", this::touchRepositories);
+            step("connection pool", this::primeConnectionPool);
+            step("Redis", () -> redisTemplate.execute((RedisCallback<String>) RedisConnection::ping));
+            step("web stack", this::requestHealth);
+
+            List<String> mtMessages = new ArrayList<>();
+            List<String> mxMessages = new ArrayList<>();
+            step("corpus", () -> loadCorpus(mtMessages, mxMessages));
+            long deadline = start + Duration.ofMillis(maxDurationMs).toNanos();
+            for (int round = 0; round < rounds && System.nanoTime() < deadline; round++) {
+                for (String message : mtMessages) {
+                    convert(() -> validationService.validateMt(message, null));
+                }
+                for (String message : mxMessages) {
+                    convert(() -> validationService.validateMx(message, null));
+                }
+                durationMs = (System.nanoTime() - start) / 1_000_000;
+            }
+        } finally {
+            durationMs = (System.nanoTime() - start) / 1_000_000;
+            state = State.DONE;
+            log.info("Warm-up finished in {} ms: {} dry-run conversions, {} failed steps", durationMs, conversions,
+                    failedSteps);
+        }
+        eventPublisher.publishEvent(new Finished(durationMs));
+    }
+
+    private void compileSchemas() throws IOException {
+        for (Resource xsd : new PathMatchingResourcePatternResolver().getResources("classpath*:xsd/*.xsd")) {
+            xmlValidator.precompile("xsd/" + xsd.getFilename());
+        }
+    }
+
+    private void touchRepositories() {
+        // Cheap lookups that initialize the repositories, Hibernate's metamodel and the common query plans
+        UUID none = new UUID(0, 0);
+        userRepository.findByEmail("warm-up@invalid");
+        conversionRepository.existsById(none);
+        creditPurchaseRepository.existsById(none);
+        creditUsageRepository.existsById(none);
+    }
+
+    private void primeConnectionPool() throws SQLException {
+        int connections = dataSource instanceof HikariDataSource hikari ? Math.max(1, hikari.getMinimumIdle()) : 1;
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(2);
+            }
+        } finally {
+            for (Connection connection : opened) {
+                connection.close();
+            }
+        }
+    }
+
+    private void requestHealth() throws IOException, InterruptedException {
+        // Creates the dispatcher servlet, the security filter chain and the message converters
+        String port = environment.getProperty("local.server.port");
+        if (port == null) {
+            return;
+        }
+        String contextPath = environment.getProperty("server.servlet.context-path", "").replaceAll("/+$", "");
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + port + contextPath + "/api/v1/health"))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private void loadCorpus(List<String> mtMessages, List<String> mxMessages) throws IOException {
+        for (Resource sample : new PathMatchingResourcePatternResolver().getResources("classpath*:warmup/*")) {
+            String content = sample.getContentAsString(StandardCharsets.UTF_8);
+            String name = sample.getFilename() != null ? sample.getFilename() : "";
+            if (name.endsWith(".txt")) {
+                mtMessages.add(content);
+            } else if (name.endsWith(".xml")) {
+                mxMessages.add(content);
+            }
+        }
+    }
+
+    private void convert(Supplier<ValidationResponse> conversion) {
+        try {
+            conversion.get();
+            conversions++;
+        } catch (RuntimeException e) {
+            failedSteps++;
+            log.debug("Warm-up conversion failed: {}", e.getMessage());
+        }
+    }
+
+    private void step(String name, Step step) {
+        try {
+            step.run();
+        } catch (Exception e) {
+            failedSteps++;
+            log.warn("Warm-up step '{}' failed: {}", name, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,208 @@
+package com.mtsaas.backend.application.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mtsaas.backend.domain.User;
+import com.mtsaas.backend.domain.WebhookEvent;
+import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inbox for payment webhooks: accepted synchronously, fulfilled in the background.
+ *
+ * {@link #accept} only stores the order, keyed by its unique order id, so the webhook can be
+ * acknowledged at once and redeliveries are absorbed by the constraint. The worker claims each pending
+ * row with a conditional update in the same transaction that adds the credits, so an order is
+ * fulfilled exactly once even with several nodes polling; failed attempts are retried with backoff.
+ * Notification emails are sent after the commit.
+ */
+@Service
+@Slf4j
+public class WebhookInboxService {
+
+    public enum Outcome {
+        ACCEPTED, DUPLICATE, IGNORED
+    }
+
+    private record PendingEvent(UUID id, String orderId, UUID userId, long credits, int attempts) {
+    }
+
+    private static final String ORDER_CREATED = "order_created";
+
+    private static final String INSERT_SQL = "INSERT INTO webhook_inbox "
+            + "(id, order_id, event_name, user_id, credits, payload, status, attempts, received_at, next_attempt_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?) ON CONFLICT (order_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final CreditService creditService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // One worker run at a time per node; nudges while it is busy or queued collapse into one
+    private final ThreadPoolExecutor worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+                Thread thread = new Thread(runnable, "webhook-inbox");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Value("${app.webhook.inbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.webhook.inbox.max-attempts:8}")
+    private int maxAttempts;
+
+    public WebhookInboxService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            UserRepository userRepository, CreditService creditService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.creditService = creditService;
+    }
+
+    /**
+     * Stores a verified webhook for fulfillment.
+     *
+     * @throws IOException if the payload is not JSON
+     */
+    public Outcome accept(byte[] rawPayload) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(rawPayload);
+        JsonNode metaNode = rootNode.path("meta");
+        String eventName = metaNode.path("event_name").asText();
+        if (!ORDER_CREATED.equals(eventName)) {
+            log.debug("Ignoring unhandled Lemon Squeezy event type: {}", eventName);
+            return Outcome.IGNORED;
+        }
+
+        JsonNode dataNode = rootNode.path("data");
+        String orderId = dataNode.path("id").asText();
+        String status = dataNode.path("attributes").path("status").asText();
+        if (!"paid".equals(status)) {
+            log.warn("Order {} has status: {} (not processing)", orderId, status);
+            return Outcome.IGNORED;
+        }
+
+        JsonNode customData = metaNode.path("custom_data");
+        String userIdStr = customData.path("user_id").asText();
+        String creditsStr = customData.path("credits").asText();
+        UUID userId;
+        long credits;
+        try {
+            userId = UUID.fromString(userIdStr);
+            credits = Long.parseLong(creditsStr);
+        } catch (IllegalArgumentException e) {
+            log.warn("Missing or invalid custom_data in order {}: user_id={}, credits={}", orderId, userIdStr,
+                    creditsStr);
+            return Outcome.IGNORED;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int inserted = jdbcTemplate.update(INSERT_SQL, UUID.randomUUID(), orderId, eventName, userId, credits,
+                new String(rawPayload, StandardCharsets.UTF_8), now, now);
+        if (inserted == 0) {
+            log.info("Webhook for order {} already received, ignoring redelivery", orderId);
+            return Outcome.DUPLICATE;
+        }
+        log.info("Queued Lemon Squeezy order {} for user {} ({} credits)", orderId, userId, credits);
+        worker.execute(this::processPending);
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * Catches retries and orders queued on other nodes, on the inbox's own worker thread rather than the
+     * shared scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${app.webhook.inbox.poll-ms:60000}")
+    public void poll() {
+        worker.execute(this::processPending);
+    }
+
+    /**
+     * Fulfills pending orders.
+     */
+    private void processPending() {
+        try {
+            List<PendingEvent> pending;
+            do {
+                pending = jdbcTemplate.query(
+                        "SELECT id, order_id, user_id, credits, attempts FROM webhook_inbox "
+                                + "WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY received_at LIMIT ?",
+                        (rs, rowNum) -> new PendingEvent(
+                                rs.getObject("id", UUID.class),
+                                rs.getString("order_id"),
+                                rs.getObject("user_id", UUID.class),
+                                rs.getLong("credits"),
+                                rs.getInt("attempts")),
+                        Timestamp.valueOf(LocalDateTime.now()), batchSize);
+                pending.forEach(this::process);
+            } while (pending.size() >= batchSize);
+        } catch (Exception e) {
+            log.error("Webhook inbox run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void process(PendingEvent event) {
+        User fulfilledFor;
+        try {
+            fulfilledFor = transactionTemplate.execute(status -> {
+                // Claim the row; a concurrent worker blocks here and then finds it no longer pending
+                int claimed = jdbcTemplate.update("UPDATE webhook_inbox SET status = 'PROCESSED', processed_at = ?, "
+                        + "attempts = attempts + 1 WHERE id = ? AND status = 'PENDING'",
+                        Timestamp.valueOf(LocalDateTime.now()), event.id());
+                if (claimed == 0) {
+                    return null;
+                }
+                User user = userRepository.findById(event.userId())
+                        .orElseThrow(() -> new IllegalStateException("User not found: " + event.userId()));
+                creditService.addPurchasedCredits(user, event.credits(), event.orderId());
+                return user;
+            });
+        } catch (Exception e) {
+            recordFailure(event, e);
+            return;
+        }
+        if (fulfilledFor != null) {
+            log.info("Fulfilled order {}: {} credits for user {}", event.orderId(), event.credits(),
+                    fulfilledFor.getEmail());
+            creditService.sendPurchaseNotifications(fulfilledFor, event.credits(), event.orderId());
+        }
+    }
+
+    private void recordFailure(PendingEvent event, Exception e) {
+        int attempts = event.attempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        // 1, 2, 4, ... minutes between attempts, capped at an hour
+        long delayMinutes = Math.min(60, 1L << Math.min(attempts - 1, 6));
+        log.error("Failed to fulfill order {} (attempt {}{}): {}", event.orderId(), attempts,
+                giveUp ? ", giving up" : "", e.getMessage(), e);
+        String error = e.getMessage() != null && e.getMessage().length() > 1000
+                ? e.getMessage().substring(0, 1000) : e.getMessage();
+        jdbcTemplate.update("UPDATE webhook_inbox SET status = ?, attempts = ?, last_error = ?, next_attempt_at = ? "
+                        + "WHERE id = ? AND status = 'PENDING'",
+                giveUp ? WebhookEvent.Status.FAILED.name() : WebhookEvent.Status.PENDING.name(), attempts, error,
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(delayMinutes)), event.id());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+}
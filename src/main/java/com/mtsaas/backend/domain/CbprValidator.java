@@ -7,6 +7,21 @@ import java.util.Map;
 
 public class CbprValidator {
 
+    /**
+     * Runs the CBPR+ presence rules matching the MT type (103, 102, 202, 202COV). Other types have no
+     * rules and yield an empty list.
+     */
+    public static List<String> validateForType(MtMessage mtMessage) {
+        String type = mtMessage.getType() == null ? "" : mtMessage.getType().toUpperCase();
+        return switch (type) {
+            case "103" -> validatePacs008(mtMessage);
+            case "102" -> validatePacs008Bulk(mtMessage);
+            case "202" -> validatePacs009(mtMessage);
+            case "202COV" -> validatePacs009Cov(mtMessage);
+            default -> new ArrayList<>();
+        };
+    }
+
     public static List<String> validatePacs009Cov(MtMessage mtMessage) {
         List<String> errors = new ArrayList<>();
         Map<String, String> tags = mtMessage.getTags();
@@ -18,7 +18,10 @@ import java.util.UUID;
 @Entity
 @Table(name = "conversions", indexes = {
         @Index(name = "idx_conversions_user_id", columnList = "user_id"),
-        @Index(name = "idx_conversions_created_at", columnList = "created_at")
+        @Index(name = "idx_conversions_created_at", columnList = "created_at"),
+        @Index(name = "idx_conversions_user_created_at", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_conversions_uetr", columnList = "uetr"),
+        @Index(name = "idx_conversions_amount", columnList = "amount")
 })
 public class Conversion {
     public enum Status {
@@ -58,6 +61,17 @@ public class Conversion {
     @Column(name = "ip_address")
     private String ipAddress;
 
+    // Reference, UETR, BICs and amount extracted at conversion time for indexed search
+    @Embedded
+    private ConversionMetadata metadata;
+
+    // Set once the payload columns have been moved to an archive segment (YYYY-MM)
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    @Column(name = "archive_segment", length = 7)
+    private String archiveSegment;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
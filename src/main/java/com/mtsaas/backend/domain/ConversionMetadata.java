@@ -0,0 +1,177 @@
+package com.mtsaas.backend.domain;
+
+import com.mtsaas.backend.domain.swift.mt.MtMessage;
+import com.mtsaas.backend.domain.swift.mx.MxMessage;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Searchable identifiers of a converted message, extracted once at conversion time so that
+ * lookups by reference, UETR, BIC or amount never need to read the payload columns.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class ConversionMetadata {
+
+    @Column(name = "message_type", length = 35)
+    private String messageType;
+
+    @Column(name = "reference", length = 35)
+    private String reference;
+
+    @Column(name = "uetr", length = 36)
+    private String uetr;
+
+    @Column(name = "sender_bic", length = 11)
+    private String senderBic;
+
+    @Column(name = "receiver_bic", length = 11)
+    private String receiverBic;
+
+    @Column(name = "amount", precision = 19, scale = 5)
+    private BigDecimal amount;
+
+    @Column(name = "currency", length = 3)
+    private String currency;
+
+    public static ConversionMetadata fromMt(MtMessage mtMessage) {
+        if (mtMessage == null) {
+            return null;
+        }
+        Map<String, String> tags = mtMessage.getTags() != null ? mtMessage.getTags() : Map.of();
+
+        ConversionMetadata metadata = new ConversionMetadata();
+        metadata.setMessageType(truncate(mtMessage.getType() != null ? "MT" + mtMessage.getType() : null, 35));
+        metadata.setReference(truncate(firstLine(tags.get("20")), 35));
+        metadata.setUetr(normalizeUetr(tags.get("121")));
+        metadata.setSenderBic(normalizeBic(mtMessage.getSender()));
+        metadata.setReceiverBic(normalizeBic(mtMessage.getReceiver()));
+
+        // 32A: YYMMDD + CCY + amount, 32B/33B: CCY + amount, 62F/60F: D/C mark + YYMMDD + CCY + amount
+        if (tags.containsKey("32A")) {
+            applyCurrencyAmount(metadata, skip(tags.get("32A"), 6));
+        } else if (tags.containsKey("32B")) {
+            applyCurrencyAmount(metadata, tags.get("32B"));
+        } else if (tags.containsKey("33B")) {
+            applyCurrencyAmount(metadata, tags.get("33B"));
+        } else if (tags.containsKey("62F")) {
+            applyCurrencyAmount(metadata, skip(tags.get("62F"), 7));
+        } else if (tags.containsKey("60F")) {
+            applyCurrencyAmount(metadata, skip(tags.get("60F"), 7));
+        }
+        return metadata;
+    }
+
+    public static ConversionMetadata fromMx(MxMessage mxMessage) {
+        if (mxMessage == null) {
+            return null;
+        }
+        Map<String, String> fields = mxMessage.getFields() != null ? mxMessage.getFields() : Map.of();
+
+        ConversionMetadata metadata = new ConversionMetadata();
+        metadata.setMessageType(truncate(mxMessage.getMessageType(), 35));
+        String reference = fields.get("MsgId");
+        if (reference == null || reference.isBlank()) {
+            reference = mxMessage.getBusinessMessageId();
+        }
+        metadata.setReference(truncate(trimToNull(reference), 35));
+        metadata.setUetr(normalizeUetr(fields.get("UETR")));
+        metadata.setSenderBic(normalizeBic(mxMessage.getSenderBic()));
+        metadata.setReceiverBic(normalizeBic(mxMessage.getReceiverBic()));
+        metadata.setAmount(parseAmount(fields.get("Amount")));
+        metadata.setCurrency(normalizeCurrency(fields.get("Currency")));
+        return metadata;
+    }
+
+    private static void applyCurrencyAmount(ConversionMetadata metadata, String value) {
+        if (value == null || value.length() < 4) {
+            return;
+        }
+        metadata.setCurrency(normalizeCurrency(value.substring(0, 3)));
+        metadata.setAmount(parseAmount(value.substring(3)));
+    }
+
+    private static BigDecimal parseAmount(String raw) {
+        String value = trimToNull(raw);
+        if (value == null) {
+            return null;
+        }
+        value = value.replace(" ", "").replace(",", ".");
+        if (value.endsWith(".")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            // Keep within numeric(19,5); anything larger is not a real settlement amount
+            return amount.precision() - amount.scale() > 14 ? null : amount;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String normalizeCurrency(String raw) {
+        String value = trimToNull(raw);
+        if (value == null || value.length() != 3) {
+            return null;
+        }
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizeBic(String raw) {
+        String value = trimToNull(raw);
+        if (value == null) {
+            return null;
+        }
+        value = value.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+        return value.isEmpty() ? null : truncate(value, 11);
+    }
+
+    private static String normalizeUetr(String raw) {
+        String value = trimToNull(raw);
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String firstLine(String value) {
+        if (value == null) {
+            return null;
+        }
+        int newline = value.indexOf('\n');
+        return trimToNull(newline >= 0 ? value.substring(0, newline) : value);
+    }
+
+    private static String skip(String value, int chars) {
+        if (value == null || value.length() <= chars) {
+            return null;
+        }
+        return value.substring(chars);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String truncate(String value, int max) {
+        if (value == null || value.length() <= max) {
+            return value;
+        }
+        return value.substring(0, max);
+    }
+}
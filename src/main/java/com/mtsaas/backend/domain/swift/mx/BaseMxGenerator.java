@@ -22,16 +22,8 @@ public abstract class BaseMxGenerator implements MxGenerator {
     protected final String generateAndValidateXml(MtMessage mtMessage) {
         String xml = generateXml(mtMessage);
         if (xmlValidator != null) {
-            String validationContent = xml;
-            // Extract the Document part if present to validate against standard XSD
-            int startIndex = xml.indexOf("<Document");
-            if (startIndex >= 0) {
-                int endIndex = xml.indexOf("</Document>") + "</Document>".length();
-                if (endIndex > startIndex) {
-                    validationContent = xml.substring(startIndex, endIndex);
-                }
-            }
-            xmlValidator.validate(validationContent, getXsdPath());
+            // The XSD describes the Document part only, not the header around it
+            xmlValidator.validate(XmlValidator.extractDocument(xml), getXsdPath());
         }
         return xml;
     }
@@ -9,6 +9,7 @@ import java.util.Map;
 @Data
 public class MxMessage {
     private String messageType; // e.g., "pacs.008.001.08", "pacs.009.001.08", "camt.053.001.08"
+    private String documentNamespace; // Namespace of the Document element, e.g. "urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08"
     private String businessMessageId;
     private String messageDefinitionId;
     private String senderBic;
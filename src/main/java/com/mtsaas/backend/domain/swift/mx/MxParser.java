@@ -64,6 +64,16 @@ public class MxParser {
                 }
             }
 
+            // The Document element may be the root or wrapped in an envelope next to the AppHdr
+            Element document = "Document".equals(documentElement.getLocalName()) ? documentElement : null;
+            if (document == null) {
+                NodeList documentNodes = doc.getElementsByTagNameNS("*", "Document");
+                document = documentNodes.getLength() > 0 ? (Element) documentNodes.item(0) : null;
+            }
+            if (document != null) {
+                mxMessage.setDocumentNamespace(document.getNamespaceURI());
+            }
+
             // Parse AppHdr if present
             parseAppHdr(doc, mxMessage);
 
@@ -209,6 +219,7 @@ public class MxParser {
                 Element pmtId = (Element) pmtIdNodes.item(0);
                 extractElementText(pmtId, "InstrId", fields, "InstrId");
                 extractElementText(pmtId, "EndToEndId", fields, "EndToEndId");
+                extractElementText(pmtId, "UETR", fields, "UETR");
             }
 
             // Amount
@@ -320,6 +331,7 @@ public class MxParser {
                 Element pmtId = (Element) pmtIdNodes.item(0);
                 extractElementText(pmtId, "InstrId", fields, "InstrId");
                 extractElementText(pmtId, "EndToEndId", fields, "EndToEndId");
+                extractElementText(pmtId, "UETR", fields, "UETR");
             }
 
             // Amount
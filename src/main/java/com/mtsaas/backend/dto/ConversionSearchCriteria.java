@@ -0,0 +1,23 @@
+package com.mtsaas.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ConversionSearchCriteria {
+    private UUID userId; // null = all users (admin search)
+    private String reference; // prefix match on :20: / MsgId
+    private String uetr;
+    private String bic; // prefix match on sender or receiver BIC
+    private String senderBic;
+    private String receiverBic;
+    private BigDecimal amount;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private String currency;
+    private int limit;
+}
@@ -0,0 +1,24 @@
+package com.mtsaas.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ConversionSearchResult {
+    private UUID id;
+    private String conversionType;
+    private String status;
+    private String messageType;
+    private String reference;
+    private String uetr;
+    private String senderBic;
+    private String receiverBic;
+    private BigDecimal amount;
+    private String currency;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,20 @@
+package com.mtsaas.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationResponse {
+    private boolean valid;
+    private String direction; // MT_TO_MX, MX_TO_MT
+    private String messageType;
+    private List<String> errors; // Parse, input and XSD failures - the message would not convert
+    private List<String> warnings; // CBPR+ advisories - the message converts but may be rejected downstream
+}
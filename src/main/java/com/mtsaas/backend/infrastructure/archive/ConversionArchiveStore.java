@@ -0,0 +1,252 @@
+package com.mtsaas.backend.infrastructure.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only storage for archived conversion payloads, one segment per calendar month.
+ *
+ * A segment is a pair of files: {@code conversions-YYYY-MM.seg} holds one gzip member per record and
+ * {@code conversions-YYYY-MM.idx} holds {@code id,offset,length} lines pointing into it. A record is
+ * read with a single positioned read, and a length of -1 marks a deleted record. The last index line
+ * for an id wins, so re-archiving a record after a crash is harmless.
+ *
+ * The directory must be the same for every node that serves history (one node, or a volume mounted by
+ * all of them): table rows only name the segment, not the node that wrote it. Cached indexes are
+ * reloaded when they lack a requested id, so records appended by another node are found.
+ */
+@Component
+@Slf4j
+public class ConversionArchiveStore {
+
+    public record ArchivedPayload(UUID id, String inputContent, String outputContent) {
+    }
+
+    private static final String PREFIX = "conversions-";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Path directory;
+    private final Map<String, Map<UUID, long[]>> indexCache = new ConcurrentHashMap<>();
+
+    public ConversionArchiveStore(@Value("${app.archive.directory:./data/archive}") String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    public static String segmentFor(YearMonth month) {
+        return month.toString();
+    }
+
+    public synchronized void append(String segment, List<ArchivedPayload> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Map<UUID, long[]> index = loadIndex(segment);
+            StringBuilder indexLines = new StringBuilder();
+
+            try (FileChannel channel = FileChannel.open(segmentFile(segment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long position = channel.size();
+                for (ArchivedPayload record : records) {
+                    byte[] bytes = encode(record);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + buffer.position());
+                    }
+                    indexLines.append(record.id()).append(',').append(position).append(',')
+                            .append(bytes.length).append('\n');
+                    index.put(record.id(), new long[] { position, bytes.length });
+                    position += bytes.length;
+                }
+                channel.force(true);
+            }
+
+            // Index lines are written only after the data they point to is durable
+            appendIndex(segment, indexLines.toString());
+        } catch (IOException e) {
+            indexCache.remove(segment);
+            throw new UncheckedIOException("Failed to append to archive segment " + segment, e);
+        }
+    }
+
+    public Map<UUID, ArchivedPayload> readAll(String segment, Collection<UUID> ids) {
+        Map<UUID, ArchivedPayload> result = new HashMap<>();
+        if (ids.isEmpty() || !Files.exists(segmentFile(segment))) {
+            return result;
+        }
+        try {
+            Map<UUID, long[]> index = loadIndex(segment);
+            if (!index.keySet().containsAll(ids)) {
+                // Another node sharing the directory may have archived into the segment since it was cached
+                indexCache.remove(segment);
+                index = loadIndex(segment);
+            }
+            try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.READ)) {
+                for (UUID id : ids) {
+                    long[] entry = index.get(id);
+                    if (entry == null || entry[1] < 0) {
+                        continue;
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate((int) entry[1]);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, entry[0] + buffer.position()) < 0) {
+                            throw new IOException("Truncated archive record " + id + " in segment " + segment);
+                        }
+                    }
+                    result.put(id, decode(buffer.array()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + segment, e);
+        }
+        return result;
+    }
+
+    /**
+     * Marks a record as deleted; the bytes stay in the segment until the segment itself is purged.
+     */
+    public synchronized void delete(String segment, UUID id) {
+        if (!Files.exists(indexFile(segment))) {
+            return;
+        }
+        try {
+            loadIndex(segment).put(id, new long[] { 0, -1 });
+            appendIndex(segment, id + ",0,-1\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete from archive segment " + segment, e);
+        }
+    }
+
+    public List<String> listSegments() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<String> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(".seg"))
+                    .map(name -> name.substring(PREFIX.length(), name.length() - ".seg".length()))
+                    .sorted()
+                    .forEach(segments::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list archive segments", e);
+        }
+        return segments;
+    }
+
+    public synchronized void deleteSegment(String segment) {
+        indexCache.remove(segment);
+        try {
+            Files.deleteIfExists(indexFile(segment));
+            Files.deleteIfExists(segmentFile(segment));
+            log.info("Deleted archive segment {}", segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete archive segment " + segment, e);
+        }
+    }
+
+    private Map<UUID, long[]> loadIndex(String segment) throws IOException {
+        Map<UUID, long[]> cached = indexCache.get(segment);
+        if (cached != null) {
+            return cached;
+        }
+        Map<UUID, long[]> index = new ConcurrentHashMap<>();
+        Path file = indexFile(segment);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    continue; // torn last line after a crash
+                }
+                index.put(UUID.fromString(parts[0]),
+                        new long[] { Long.parseLong(parts[1]), Long.parseLong(parts[2]) });
+            }
+        }
+        indexCache.put(segment, index);
+        return index;
+    }
+
+    private void appendIndex(String segment, String lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private byte[] encode(ArchivedPayload record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+                JsonGenerator json = JSON_FACTORY.createGenerator(gzip)) {
+            json.writeStartObject();
+            json.writeStringField("id", record.id().toString());
+            json.writeStringField("inputContent", record.inputContent());
+            json.writeStringField("outputContent", record.outputContent());
+            json.writeEndObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    private ArchivedPayload decode(byte[] bytes) throws IOException {
+        String id = null;
+        String input = null;
+        String output = null;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes));
+                JsonParser json = JSON_FACTORY.createParser(in)) {
+            json.nextToken();
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.getCurrentName();
+                json.nextToken();
+                String value = json.getValueAsString();
+                switch (field) {
+                    case "id" -> id = value;
+                    case "inputContent" -> input = value;
+                    case "outputContent" -> output = value;
+                    default -> json.skipChildren();
+                }
+            }
+        }
+        return new ArchivedPayload(UUID.fromString(id), input, output);
+    }
+
+    private Path segmentFile(String segment) {
+        return directory.resolve(PREFIX + segment + ".seg");
+    }
+
+    private Path indexFile(String segment) {
+        return directory.resolve(PREFIX + segment + ".idx");
+    }
+}
@@ -0,0 +1,300 @@
+package com.mtsaas.backend.infrastructure.concurrency;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to observed latency, with priority lanes.
+ *
+ * The limit follows the gradient between the baseline latency (the cost of a request that did not
+ * queue) and the short-term latency: while they agree the limit grows by about {@code sqrt(limit)},
+ * and as soon as requests slow down because they queue for CPU or connections the gradient drops below
+ * one and the limit shrinks in proportion. Samples only grow the limit when at least half of it is in
+ * use, so an idle period does not inflate it.
+ *
+ * The baseline is the median of the 10th percentiles of the last few windows of
+ * {@value #BASELINE_WINDOW} samples. A handful of unusually fast samples therefore cannot redefine it,
+ * a sustained overload takes several windows to be adopted as normal, and the limit does not move
+ * until the first window is complete.
+ *
+ * Requests over the limit wait in a small queue ordered by lane, then arrival; a higher lane arriving
+ * at a full queue displaces the newest waiter of the lowest lane. The lowest lane may only use
+ * {@code lowestLaneShare} of the limit, so it cannot crowd out the others even when they are idle for
+ * a moment. Requests that cannot be admitted within {@code maxWaitMs} are refused.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Lane {
+        PAID, AUTHENTICATED, ANONYMOUS
+    }
+
+    public enum Rejection {
+        QUEUE_FULL, TIMEOUT, DISPLACED
+    }
+
+    public static final class Permit {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final Lane lane;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(AdaptiveConcurrencyLimiter limiter, Lane lane) {
+            this.limiter = limiter;
+            this.lane = lane;
+        }
+
+        /**
+         * Returns the permit; {@code sample} is false when the latency is not representative (e.g. the
+         * request failed fast) and must not move the limit.
+         */
+        public void release(boolean sample) {
+            if (released) {
+                return;
+            }
+            released = true;
+            limiter.release(lane, sample ? System.nanoTime() - startNanos : -1);
+        }
+    }
+
+    /** Outcome of {@link #acquire}: a permit, or why there is none. */
+    public record Admission(Permit permit, Rejection rejection) {
+        public boolean admitted() {
+            return permit != null;
+        }
+    }
+
+    private static final class Waiter {
+        final Lane lane;
+        final long sequence;
+        final Condition condition;
+        Permit permit;
+        boolean displaced;
+
+        Waiter(Lane lane, long sequence, Condition condition) {
+            this.lane = lane;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+
+    private static final Comparator<Waiter> PRIORITY = Comparator
+            .<Waiter>comparingInt(waiter -> waiter.lane.ordinal())
+            .thenComparingLong(waiter -> waiter.sequence);
+
+    private static final int BASELINE_WINDOW = 100;
+    private static final int BASELINE_WINDOWS = 8;
+    // Weight of one sample in the short-term latency, about a 10-sample window
+    private static final double SHORT_WINDOW_ALPHA = 2.0 / 11;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double lowestLaneShare;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(PRIORITY);
+    private long sequence;
+
+    private double limit;
+    private int inFlight;
+    private int lowestLaneInFlight;
+    private final long[] window = new long[BASELINE_WINDOW];
+    private int windowSize;
+    private final ArrayDeque<Long> windowBaselines = new ArrayDeque<>();
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    /**
+     * @param tolerance how much slower than the baseline requests may get before the limit shrinks (e.g. 1.5)
+     * @param smoothing fraction of each new estimate applied to the limit (0-1)
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+            double smoothing, double lowestLaneShare, int maxQueue, long maxWaitMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.tolerance = Math.max(1.0, tolerance);
+        this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+        this.lowestLaneShare = Math.min(1.0, Math.max(0.0, lowestLaneShare));
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+    }
+
+    /**
+     * Admits the request at once, after a bounded wait, or not at all. A permit must be released.
+     */
+    public Admission acquire(Lane lane) throws InterruptedException {
+        lock.lock();
+        try {
+            Waiter head = waiters.peek();
+            if ((head == null || head.lane.ordinal() > lane.ordinal()) && canAdmit(lane)) {
+                return new Admission(grant(lane), null);
+            }
+            if (maxQueue == 0 || maxWaitNanos == 0) {
+                return new Admission(null, Rejection.QUEUE_FULL);
+            }
+            if (waiters.size() >= maxQueue && !displaceLowerThan(lane)) {
+                return new Admission(null, Rejection.QUEUE_FULL);
+            }
+
+            Waiter waiter = new Waiter(lane, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            long remaining = maxWaitNanos;
+            while (waiter.permit == null && !waiter.displaced && remaining > 0) {
+                try {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    abandon(waiter);
+                    throw e;
+                }
+            }
+            if (waiter.permit != null) {
+                return new Admission(waiter.permit, null);
+            }
+            if (waiter.displaced) {
+                return new Admission(null, Rejection.DISPLACED);
+            }
+            waiters.remove(waiter);
+            return new Admission(null, Rejection.TIMEOUT);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(Lane lane) {
+        lock.lock();
+        try {
+            return (int) waiters.stream().filter(waiter -> waiter.lane == lane).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Baseline latency in milliseconds, 0 before the first window of samples is complete. */
+    public double getBaselineLatencyMs() {
+        lock.lock();
+        try {
+            return longRttNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lane lane, long rttNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (lane == Lane.ANONYMOUS) {
+                lowestLaneInFlight--;
+            }
+            if (rttNanos > 0) {
+                update(rttNanos);
+            }
+            drain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rttNanos) {
+        shortRttNanos = shortRttNanos == 0
+                ? rttNanos
+                : shortRttNanos + (rttNanos - shortRttNanos) * SHORT_WINDOW_ALPHA;
+        window[windowSize++] = rttNanos;
+        if (windowSize == BASELINE_WINDOW) {
+            long[] sorted = window.clone();
+            Arrays.sort(sorted);
+            windowBaselines.addLast(sorted[BASELINE_WINDOW / 10]);
+            if (windowBaselines.size() > BASELINE_WINDOWS) {
+                windowBaselines.removeFirst();
+            }
+            windowSize = 0;
+            long[] baselines = windowBaselines.stream().mapToLong(Long::longValue).sorted().toArray();
+            longRttNanos = baselines[baselines.length / 2];
+        }
+        if (longRttNanos == 0) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        if (estimate > limit && inFlight < limit / 2) {
+            return;
+        }
+        double smoothed = limit * (1 - smoothing) + estimate * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    private void drain() {
+        Waiter head;
+        while ((head = waiters.peek()) != null && canAdmit(head.lane)) {
+            waiters.poll();
+            head.permit = grant(head.lane);
+            head.condition.signal();
+        }
+    }
+
+    private boolean canAdmit(Lane lane) {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        return lane != Lane.ANONYMOUS || lowestLaneInFlight < Math.max(1, (int) (limit * lowestLaneShare));
+    }
+
+    private Permit grant(Lane lane) {
+        inFlight++;
+        if (lane == Lane.ANONYMOUS) {
+            lowestLaneInFlight++;
+        }
+        return new Permit(this, lane);
+    }
+
+    private boolean displaceLowerThan(Lane lane) {
+        Waiter lowest = null;
+        for (Waiter waiter : waiters) {
+            if (lowest == null || PRIORITY.compare(waiter, lowest) > 0) {
+                lowest = waiter;
+            }
+        }
+        if (lowest == null || lowest.lane.ordinal() <= lane.ordinal()) {
+            return false;
+        }
+        waiters.remove(lowest);
+        lowest.displaced = true;
+        lowest.condition.signal();
+        return true;
+    }
+
+    private void abandon(Waiter waiter) {
+        if (!waiters.remove(waiter) && waiter.permit != null) {
+            // Granted while we were being interrupted: hand it back
+            waiter.permit.release(false);
+        }
+    }
+}
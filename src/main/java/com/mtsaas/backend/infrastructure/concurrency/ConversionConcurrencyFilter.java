@@ -0,0 +1,160 @@
+package com.mtsaas.backend.infrastructure.concurrency;
+
+import com.mtsaas.backend.application.service.SecurityUser;
+import com.mtsaas.backend.infrastructure.security.ClientTier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds conversion load before it queues up inside the application.
+ *
+ * Conversion and validation requests take a permit from an {@link AdaptiveConcurrencyLimiter} whose
+ * limit follows their latency. Customers who bought credits (and admins) have the first lane, other
+ * signed-in users the second, anonymous visitors the last one. Requests that cannot get a permit within
+ * a short wait are answered with 503 and {@code Retry-After} instead of waiting for a Tomcat thread.
+ * Runs after the rate limits, so rate-limited requests never hold a permit.
+ *
+ * Only successful conversions are latency samples. Validation calls, rejected input and quota or credit
+ * answers return far faster than a conversion; letting them in would let any client drag the baseline
+ * down and the limit with it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversionConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final String PATH_PREFIX = "/api/v1/conversion/";
+    private static final String VALIDATE_SUFFIX = "/validate";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.concurrency.conversion.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.concurrency.conversion.initial-limit:16}")
+    private int initialLimit;
+
+    @Value("${app.concurrency.conversion.min-limit:4}")
+    private int minLimit;
+
+    @Value("${app.concurrency.conversion.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${app.concurrency.conversion.tolerance:1.5}")
+    private double tolerance;
+
+    @Value("${app.concurrency.conversion.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${app.concurrency.conversion.anonymous-share:0.5}")
+    private double anonymousShare;
+
+    @Value("${app.concurrency.conversion.max-queue:50}")
+    private int maxQueue;
+
+    @Value("${app.concurrency.conversion.max-wait-ms:200}")
+    private long maxWaitMs;
+
+    @Value("${app.concurrency.conversion.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @PostConstruct
+    public void init() {
+        limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing,
+                anonymousShare, maxQueue, maxWaitMs);
+
+        Gauge.builder("conversion.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent conversions").register(meterRegistry);
+        Gauge.builder("conversion.concurrency.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Conversions holding a permit").register(meterRegistry);
+        Gauge.builder("conversion.concurrency.baseline_latency", limiter,
+                        AdaptiveConcurrencyLimiter::getBaselineLatencyMs)
+                .baseUnit("milliseconds")
+                .description("Long-term conversion latency the limit is measured against").register(meterRegistry);
+        for (AdaptiveConcurrencyLimiter.Lane lane : AdaptiveConcurrencyLimiter.Lane.values()) {
+            Gauge.builder("conversion.concurrency.queued", limiter, l -> l.getQueued(lane))
+                    .tag("lane", lane.name().toLowerCase())
+                    .description("Conversions waiting for a permit").register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled
+                || "OPTIONS".equals(request.getMethod())
+                || !request.getRequestURI().substring(request.getContextPath().length()).startsWith(PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter.Lane lane = resolveLane();
+        AdaptiveConcurrencyLimiter.Admission admission;
+        try {
+            admission = limiter.acquire(lane);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, lane, "interrupted");
+            return;
+        }
+        if (!admission.admitted()) {
+            reject(response, lane, admission.rejection().name().toLowerCase());
+            return;
+        }
+
+        boolean sample = false;
+        try {
+            filterChain.doFilter(request, response);
+            sample = response.getStatus() >= 200 && response.getStatus() < 300
+                    && !request.getRequestURI().endsWith(VALIDATE_SUFFIX);
+        } finally {
+            admission.permit().release(sample);
+        }
+    }
+
+    private void reject(HttpServletResponse response, AdaptiveConcurrencyLimiter.Lane lane, String reason)
+            throws IOException {
+        Counter.builder("conversion.concurrency.rejected")
+                .tag("lane", lane.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Shedding {} conversion request ({}), limit {}", lane, reason, limiter.getLimit());
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"overloaded\",\"message\":\"Conversion service is busy, retry in "
+                + retryAfterSeconds + " seconds\",\"retryAfterSeconds\":" + retryAfterSeconds + "}");
+    }
+
+    private AdaptiveConcurrencyLimiter.Lane resolveLane() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || !(auth.getPrincipal() instanceof SecurityUser securityUser)) {
+            return AdaptiveConcurrencyLimiter.Lane.ANONYMOUS;
+        }
+        return switch (ClientTier.of(securityUser.getUser())) {
+            case ADMIN, PAID -> AdaptiveConcurrencyLimiter.Lane.PAID;
+            default -> AdaptiveConcurrencyLimiter.Lane.AUTHENTICATED;
+        };
+    }
+}
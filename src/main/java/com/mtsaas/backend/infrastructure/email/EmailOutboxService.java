@@ -0,0 +1,356 @@
+package com.mtsaas.backend.infrastructure.email;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mtsaas.backend.application.exception.UpstreamUnavailableException;
+import com.mtsaas.backend.domain.OutboxEmail;
+import com.mtsaas.backend.infrastructure.http.Upstream;
+import com.sendgrid.Method;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Content;
+import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable email delivery through an {@code email_outbox} table.
+ *
+ * {@link #enqueue} stores one row, inside the caller's transaction when there is one, so an email is
+ * sent only if the work that triggered it commits. A single delivery thread claims due rows, groups
+ * them by template and sends each group as one SendGrid request with a personalization (recipient,
+ * subject and substitution values) per email. Failed deliveries are retried with exponential backoff;
+ * after the last attempt the email is handed to {@link FallbackEmailService}.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private record Pending(UUID id, EmailTemplate template, String recipient, String subject,
+            Map<String, String> values, int attempts) {
+    }
+
+    private static class DeliveryException extends Exception {
+        private final int statusCode;
+
+        DeliveryException(String message, int statusCode, Throwable cause) {
+            super(message, cause);
+            this.statusCode = statusCode;
+        }
+
+        // The request itself is invalid, so retrying it cannot succeed; auth and throttling errors can
+        boolean isRejected() {
+            return statusCode >= 400 && statusCode < 500 && statusCode != 401 && statusCode != 403
+                    && statusCode != 429;
+        }
+    }
+
+    // SendGrid limits: 1000 personalizations per request, 10000 bytes of substitutions per personalization
+    private static final int MAX_PERSONALIZATIONS = 1000;
+    private static final int MAX_SUBSTITUTION_BYTES = 8000;
+    private static final long CLAIM_LEASE_MINUTES = 5;
+
+    private static final String CLAIM_SQL = "UPDATE email_outbox SET attempts = attempts + 1, next_attempt_at = ? "
+            + "WHERE id IN (SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? "
+            + "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING id, template, recipient, subject, substitutions, attempts";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SendGrid sendGrid;
+    private final Upstream sendGridUpstream;
+    private final FallbackEmailService fallbackEmailService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // One delivery run at a time per node; nudges while it is busy or queued collapse into one
+    private final ThreadPoolExecutor worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+                Thread thread = new Thread(runnable, "email-outbox");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Value("${sendgrid.api.key}")
+    private String apiKey;
+
+    @Value("${sendgrid.from.email:support@swiftmxbridge.com}")
+    private String senderEmail;
+
+    @Value("${app.email.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.retention-days:7}")
+    private int retentionDays;
+
+    public EmailOutboxService(JdbcTemplate jdbcTemplate, SendGrid sendGrid,
+            @Qualifier("sendGridUpstream") Upstream sendGridUpstream, FallbackEmailService fallbackEmailService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sendGrid = sendGrid;
+        this.sendGridUpstream = sendGridUpstream;
+        this.fallbackEmailService = fallbackEmailService;
+    }
+
+    /**
+     * Queues an email; {@code values} must already be HTML-escaped.
+     */
+    public void enqueue(EmailTemplate template, String recipient, String subject, Map<String, String> values) {
+        if (recipient == null || recipient.isEmpty() || recipient.contains("placeholder")) {
+            log.error("❌ Aborting email send: Invalid recipient address: '{}'", recipient);
+            return;
+        }
+        String substitutions;
+        try {
+            substitutions = objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email values are not serializable", e);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO email_outbox (id, template, recipient, subject, substitutions, status, "
+                        + "attempts, created_at, next_attempt_at) VALUES (?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+                UUID.randomUUID(), template.name(), recipient, subject, substitutions, now, now);
+        log.info("Queued {} email to {}", template, recipient);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    worker.execute(EmailOutboxService.this::deliverPending);
+                }
+            });
+        } else {
+            worker.execute(this::deliverPending);
+        }
+    }
+
+    /**
+     * Picks up retries and emails queued on other nodes. Delivery runs on the outbox's own thread, not
+     * the shared scheduler thread, so slow SendGrid calls never hold up other scheduled jobs.
+     */
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-ms:30000}")
+    public void poll() {
+        worker.execute(this::deliverPending);
+    }
+
+    /**
+     * Sends due emails.
+     */
+    private void deliverPending() {
+        try {
+            List<Pending> claimed;
+            do {
+                claimed = claim();
+                Map<EmailTemplate, List<Pending>> byTemplate = new LinkedHashMap<>();
+                claimed.forEach(email -> byTemplate.computeIfAbsent(email.template(), key -> new ArrayList<>())
+                        .add(email));
+                byTemplate.forEach(this::sendGroup);
+            } while (claimed.size() >= batchSize);
+        } catch (Exception e) {
+            // Claimed rows keep their lease and are picked up again by a later run
+            log.error("Email outbox delivery run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.email.outbox.purge-cron:0 45 4 * * *}")
+    public void purgeSent() {
+        int deleted = jdbcTemplate.update("DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted > 0) {
+            log.info("Purged {} delivered emails from the outbox", deleted);
+        }
+    }
+
+    private List<Pending> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        // Claimed rows stay PENDING with a lease, so a node dying mid-send only delays them
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Pending(
+                        rs.getObject("id", UUID.class),
+                        EmailTemplate.valueOf(rs.getString("template")),
+                        rs.getString("recipient"),
+                        rs.getString("subject"),
+                        readValues(rs.getString("substitutions")),
+                        rs.getInt("attempts")),
+                Timestamp.valueOf(now.plusMinutes(CLAIM_LEASE_MINUTES)), Timestamp.valueOf(now), batchSize);
+    }
+
+    private void sendGroup(EmailTemplate template, List<Pending> emails) {
+        List<Pending> batch = new ArrayList<>();
+        for (Pending email : emails) {
+            if (substitutionBytes(email) > MAX_SUBSTITUTION_BYTES) {
+                send(template, List.of(email));
+                continue;
+            }
+            batch.add(email);
+            if (batch.size() == MAX_PERSONALIZATIONS) {
+                send(template, batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(template, batch);
+        }
+    }
+
+    private void send(EmailTemplate template, List<Pending> emails) {
+        if (apiKey == null || apiKey.isBlank() || apiKey.contains("placeholder")) {
+            emails.forEach(email -> markFailed(email, "SendGrid is not configured"));
+            return;
+        }
+        try {
+            post(buildMail(template, emails));
+            markSent(emails);
+            log.info("✓ Sent {} {} email(s) in one request", emails.size(), template);
+        } catch (DeliveryException e) {
+            if (e.isRejected()) {
+                if (emails.size() == 1) {
+                    markFailed(emails.get(0), e.getMessage());
+                    return;
+                }
+                // One bad address rejects the whole request; find it by sending them one by one
+                log.warn("SendGrid rejected a batch of {} {} emails, retrying individually: {}", emails.size(),
+                        template, e.getMessage());
+                emails.forEach(email -> send(template, List.of(email)));
+                return;
+            }
+            emails.forEach(email -> reschedule(email, e));
+        }
+    }
+
+    private Mail buildMail(EmailTemplate template, List<Pending> emails) {
+        Mail mail = new Mail();
+        mail.setFrom(new Email(senderEmail, "Swift MX Bridge"));
+        mail.setSubject(emails.get(0).subject());
+        if (emails.size() == 1 && substitutionBytes(emails.get(0)) > MAX_SUBSTITUTION_BYTES) {
+            Pending email = emails.get(0);
+            mail.addContent(new Content("text/html", template.render(email.values())));
+            Personalization personalization = new Personalization();
+            personalization.addTo(new Email(email.recipient()));
+            personalization.setSubject(email.subject());
+            mail.addPersonalization(personalization);
+            return mail;
+        }
+        mail.addContent(new Content("text/html", template.html()));
+        for (Pending email : emails) {
+            Personalization personalization = new Personalization();
+            personalization.addTo(new Email(email.recipient()));
+            personalization.setSubject(email.subject());
+            email.values().forEach((name, value) ->
+                    personalization.addSubstitution(EmailTemplate.placeholder(name), value));
+            mail.addPersonalization(personalization);
+        }
+        return mail;
+    }
+
+    private void post(Mail mail) throws DeliveryException {
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        Response response;
+        try {
+            request.setBody(mail.build());
+            response = sendGridUpstream.call(() -> {
+                Response result = sendGrid.api(request);
+                // Server errors count against the circuit breaker; rejections are answers
+                if (result.getStatusCode() >= 500) {
+                    throw new IOException("status " + result.getStatusCode() + " - " + result.getBody());
+                }
+                return result;
+            });
+        } catch (IOException e) {
+            throw new DeliveryException("SendGrid IO error: " + e.getMessage(), 0, e);
+        } catch (UpstreamUnavailableException e) {
+            throw new DeliveryException(e.getMessage(), 0, e);
+        }
+        if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+            throw new DeliveryException("SendGrid API error: " + response.getStatusCode() + " - " + response.getBody(),
+                    response.getStatusCode(), null);
+        }
+    }
+
+    private void markSent(List<Pending> emails) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("UPDATE email_outbox SET status = 'SENT', sent_at = ?, last_error = NULL WHERE id = ?",
+                emails.stream().map(email -> new Object[] { now, email.id() }).toList());
+    }
+
+    private void reschedule(Pending email, DeliveryException e) {
+        if (email.attempts() >= maxAttempts) {
+            markFailed(email, e.getMessage());
+            return;
+        }
+        // 1, 2, 4, ... minutes between attempts, capped at an hour
+        long delayMinutes = Math.min(60, 1L << Math.min(email.attempts() - 1, 6));
+        log.warn("Email {} to {} failed (attempt {}), retrying in {} min: {}", email.template(), email.recipient(),
+                email.attempts(), delayMinutes, e.getMessage());
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ?, last_error = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(delayMinutes)), truncate(e.getMessage()), email.id());
+    }
+
+    private void markFailed(Pending email, String error) {
+        log.error("❌ Giving up on {} email to {}: {}", email.template(), email.recipient(), error);
+        jdbcTemplate.update("UPDATE email_outbox SET status = ?, last_error = ? WHERE id = ?",
+                OutboxEmail.Status.FAILED.name(), truncate(error), email.id());
+        Map<String, String> values = email.values();
+        switch (email.template()) {
+            case VERIFICATION -> fallbackEmailService.logVerificationEmail(email.recipient(),
+                    values.get("verificationUrl"));
+            case CONTACT_US -> fallbackEmailService.logContactUsEmail(values.get("userName"), values.get("userEmail"),
+                    values.get("subject"), values.get("message"));
+            case FEEDBACK -> fallbackEmailService.logFeedbackEmail(values.get("userEmail"), values.get("message"));
+            default -> {
+                // Purchase notifications have no fallback; the row keeps the details
+            }
+        }
+    }
+
+    private Map<String, String> readValues(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, String>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt email_outbox substitutions", e);
+        }
+    }
+
+    private static int substitutionBytes(Pending email) {
+        int bytes = 0;
+        for (Map.Entry<String, String> value : email.values().entrySet()) {
+            bytes += value.getKey().length() + 2 + value.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,51 @@
+package com.mtsaas.backend.infrastructure.email;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * HTML email templates, loaded once from {@code email/*.html}.
+ *
+ * Placeholders are written {@code -name-}, the SendGrid substitution syntax, so one rendered body can
+ * be sent to many recipients with their own values in a single API call.
+ */
+public enum EmailTemplate {
+    VERIFICATION("verification.html"),
+    PURCHASE_CONFIRMATION("purchase-confirmation.html"),
+    ADMIN_PURCHASE("admin-purchase.html"),
+    FEEDBACK("feedback.html"),
+    CONTACT_US("contact-us.html");
+
+    private final String html;
+
+    EmailTemplate(String fileName) {
+        try {
+            this.html = new ClassPathResource("email/" + fileName).getContentAsString(StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Missing email template " + fileName, e);
+        }
+    }
+
+    public String html() {
+        return html;
+    }
+
+    public static String placeholder(String name) {
+        return "-" + name + "-";
+    }
+
+    /**
+     * Renders the template locally, for messages that are not sent through substitutions.
+     */
+    public String render(Map<String, String> values) {
+        String rendered = html;
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            rendered = rendered.replace(placeholder(value.getKey()), value.getValue());
+        }
+        return rendered;
+    }
+}
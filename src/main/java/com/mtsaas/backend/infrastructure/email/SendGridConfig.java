@@ -1,9 +1,19 @@
 package com.mtsaas.backend.infrastructure.email;
 
+import com.mtsaas.backend.infrastructure.http.OutboundHttpConfig;
+import com.mtsaas.backend.infrastructure.http.UpstreamSettings;
+import com.sendgrid.Client;
 import com.sendgrid.SendGrid;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class SendGridConfig {
@@ -11,8 +21,38 @@ public class SendGridConfig {
     @Value("${sendgrid.api.key}")
     private String apiKey;
 
+    // Overridable so a local stub can stand in for SendGrid
+    @Value("${sendgrid.api.host:api.sendgrid.com}")
+    private String host;
+
+    @Value("${sendgrid.api.plain-http:false}")
+    private boolean plainHttp;
+
     @Bean
-    public SendGrid sendGrid() {
-        return new SendGrid(apiKey);
+    public SendGrid sendGrid(CloseableHttpClient sendGridHttpClient) {
+        SendGrid sendGrid = new SendGrid(apiKey, new Client(sendGridHttpClient, plainHttp));
+        sendGrid.setHost(host);
+        return sendGrid;
+    }
+
+    // The SendGrid SDK is built on HttpClient 4; its default client has no timeouts and a two-connection pool
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient sendGridHttpClient(Environment env) {
+        UpstreamSettings settings = UpstreamSettings.load(env, OutboundHttpConfig.SENDGRID);
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                30, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(settings.maxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.maxConnections());
+        connectionManager.setValidateAfterInactivity(10_000);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(settings.connectTimeoutMs())
+                        .setConnectionRequestTimeout(settings.connectTimeoutMs())
+                        .setSocketTimeout(settings.readTimeoutMs())
+                        .build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .disableCookieManagement()
+                .build();
     }
 }
@@ -0,0 +1,35 @@
+package com.mtsaas.backend.infrastructure.health;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code dependencies} component of the actuator health endpoint, read from the
+ * {@link DependencyHealthMonitor} rather than checked per call; replaces Boot's {@code db} and
+ * {@code redis} indicators, which query on every request.
+ */
+@Component
+@RequiredArgsConstructor
+public class DependenciesHealthIndicator implements HealthIndicator {
+
+    private final DependencyHealthMonitor monitor;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = monitor.isReady() ? Health.up() : Health.down();
+        for (DependencyHealthMonitor.Check check : monitor.snapshot().values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("status", monitor.currentStatus(check));
+            details.put("critical", check.critical());
+            details.put("detail", check.detail());
+            details.put("ageMs", check.ageMs());
+            builder.withDetail(check.name(), details);
+        }
+        return builder.build();
+    }
+}
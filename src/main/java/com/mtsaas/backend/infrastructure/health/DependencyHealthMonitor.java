@@ -0,0 +1,281 @@
+package com.mtsaas.backend.infrastructure.health;
+
+import com.mtsaas.backend.application.service.WarmUpService;
+import com.mtsaas.backend.infrastructure.http.Upstream;
+import com.mtsaas.backend.infrastructure.xml.XmlValidator;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background checks of the application's dependencies, served from memory.
+ *
+ * Health endpoints are hit by the load balancer and the keep-alive cron; running a query per hit would
+ * take one of the (in production, two) pooled connections away from conversions. Instead Postgres, Redis,
+ * the bundled XSDs and the outbound providers are probed every {@code app.health.probe-interval-ms} on a
+ * background thread, and {@link #snapshot()} and {@link #isReady()} only read the last results. That thread
+ * belongs to the monitor: on the shared {@code @Scheduled} thread a long email or archival run would delay
+ * the probes until their results went stale and the instance reported itself unready.
+ *
+ * Each probe runs with a deadline on its own thread and is not started again while the previous one is
+ * still hanging. The Postgres probe validates an idle pooled connection; when every connection is busy
+ * serving requests it does not queue behind them, since the pool is evidently talking to the database.
+ * The XSD probe waits for the warm-up, which compiles the schemas anyway, and the provider probes read the
+ * circuit breakers instead of calling the providers. Only the {@code app.health.critical} dependencies
+ * decide readiness; a result older than three intervals counts as unknown.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class DependencyHealthMonitor {
+
+    public static final String POSTGRES = "postgres";
+    public static final String REDIS = "redis";
+    public static final String XSD = "xsd";
+
+    public enum Status {
+        UP, DOWN, UNKNOWN
+    }
+
+    public record Check(String name, Status status, boolean critical, String detail, long latencyMs,
+            Instant checkedAt) {
+
+        public long ageMs() {
+            return checkedAt == null ? -1 : System.currentTimeMillis() - checkedAt.toEpochMilli();
+        }
+    }
+
+    private final DataSource dataSource;
+    private final StringRedisTemplate redisTemplate;
+    private final XmlValidator xmlValidator;
+    private final WarmUpService warmUpService;
+    private final List<Upstream> upstreams;
+
+    @Value("${app.health.probe-interval-ms:15000}")
+    private long probeIntervalMs = 15000;
+
+    @Value("${app.health.probe-timeout-ms:2000}")
+    private long probeTimeoutMs = 2000;
+
+    @Value("${app.health.critical:postgres,xsd}")
+    private Set<String> critical = Set.of(POSTGRES, XSD);
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService probes;
+    private final Map<String, Future<Check>> inFlight = new ConcurrentHashMap<>();
+    private volatile Map<String, Check> checks = Map.of();
+
+    public DependencyHealthMonitor(DataSource dataSource, StringRedisTemplate redisTemplate,
+            XmlValidator xmlValidator, WarmUpService warmUpService, List<Upstream> upstreams) {
+        this.dataSource = dataSource;
+        this.redisTemplate = redisTemplate;
+        this.xmlValidator = xmlValidator;
+        this.warmUpService = warmUpService;
+        this.upstreams = upstreams;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.probes = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Last result of every probe, in a fixed order.
+     */
+    public Map<String, Check> snapshot() {
+        return checks;
+    }
+
+    /**
+     * Whether every critical dependency was up at its last, recent enough check.
+     */
+    public boolean isReady() {
+        Map<String, Check> current = checks;
+        for (String name : critical) {
+            Check check = current.get(name);
+            if (check == null || currentStatus(check) != Status.UP) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The check's status, or UNKNOWN once it is older than three probe intervals.
+     */
+    public Status currentStatus(Check check) {
+        return check.checkedAt() == null || check.ageMs() > 3 * probeIntervalMs ? Status.UNKNOWN : check.status();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::scheduledRefresh, 0, probeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // The XSD probe waits for the warm-up; check again as soon as it is done instead of an interval later
+    @EventListener(WarmUpService.Finished.class)
+    public void onWarmUpFinished() {
+        scheduler.execute(this::scheduledRefresh);
+    }
+
+    public synchronized void refresh() {
+        Map<String, Check> previous = checks;
+        Map<String, Check> updated = new LinkedHashMap<>();
+        updated.put(POSTGRES, probe(POSTGRES, previous, this::checkPostgres));
+        updated.put(REDIS, probe(REDIS, previous, this::checkRedis));
+        updated.put(XSD, probe(XSD, previous, this::checkSchemas));
+        for (Upstream upstream : upstreams) {
+            updated.put(upstream.getName(), probe(upstream.getName(), previous, () -> checkUpstream(upstream)));
+        }
+        checks = Collections.unmodifiableMap(updated);
+        for (Check check : updated.values()) {
+            Check before = previous.get(check.name());
+            if (before != null && before.status() != check.status()) {
+                log.info("Dependency {} is now {}: {}", check.name(), check.status(), check.detail());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probes.shutdownNow();
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task and leave every check to go stale
+            log.warn("Dependency health refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private Check probe(String name, Map<String, Check> previous, Callable<Check> check) {
+        Future<Check> future = inFlight.get(name);
+        if (future == null) {
+            future = probes.submit(check);
+            inFlight.put(name, future);
+        }
+        long start = System.nanoTime();
+        try {
+            Check result = future.get(probeTimeoutMs, TimeUnit.MILLISECONDS);
+            inFlight.remove(name);
+            return result;
+        } catch (TimeoutException e) {
+            // Left running; the next refresh waits for the same attempt instead of starting another one
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Check(name, Status.DOWN, isCritical(name), "No answer within " + probeTimeoutMs + " ms",
+                    waitedMs, Instant.now());
+        } catch (ExecutionException e) {
+            inFlight.remove(name);
+            Throwable cause = e.getCause();
+            return new Check(name, Status.DOWN, isCritical(name),
+                    cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Instant.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Check before = previous.get(name);
+            return before != null ? before : unknown(name, "Interrupted");
+        }
+    }
+
+    private Check checkPostgres() throws Exception {
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool.getIdleConnections() == 0 && pool.getActiveConnections() > 0) {
+                // Every connection is serving a request, which shows the database is reachable; do not make
+                // one of those requests wait for the probe
+                return new Check(POSTGRES, Status.UP, isCritical(POSTGRES), "Pool busy ("
+                        + pool.getActiveConnections() + " active, " + pool.getThreadsAwaitingConnection()
+                        + " waiting)", 0, Instant.now());
+            }
+        }
+        return timed(POSTGRES, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(probeTimeoutMs));
+                return connection.isValid(timeoutSeconds) ? "Connection valid" : null;
+            }
+        });
+    }
+
+    private Check checkRedis() throws Exception {
+        return timed(REDIS, () -> "PONG".equalsIgnoreCase(
+                redisTemplate.execute((RedisCallback<String>) RedisConnection::ping)) ? "PONG" : null);
+    }
+
+    private Check checkSchemas() throws Exception {
+        if (!warmUpService.isReady()) {
+            return unknown(XSD, "Waiting for the warm-up");
+        }
+        // Compiled schemas are cached, so after the first run this only looks them up
+        return timed(XSD, () -> {
+            Resource[] xsds = new PathMatchingResourcePatternResolver().getResources("classpath*:xsd/*.xsd");
+            for (Resource xsd : xsds) {
+                xmlValidator.precompile("xsd/" + xsd.getFilename());
+            }
+            return xsds.length == 0 ? null : xsds.length + " schemas compiled";
+        });
+    }
+
+    private Check checkUpstream(Upstream upstream) {
+        String state = upstream.getCircuitState();
+        return new Check(upstream.getName(), "OPEN".equals(state) ? Status.DOWN : Status.UP,
+                isCritical(upstream.getName()), "Circuit " + state.toLowerCase(), 0, Instant.now());
+    }
+
+    /**
+     * Runs {@code check}, which returns a detail when the dependency is up and null when it is not.
+     */
+    private Check timed(String name, Callable<String> check) throws Exception {
+        long start = System.nanoTime();
+        String detail = check.call();
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Check(name, detail != null ? Status.UP : Status.DOWN, isCritical(name),
+                detail != null ? detail : "Check failed", latencyMs, Instant.now());
+    }
+
+    private Check unknown(String name, String detail) {
+        return new Check(name, Status.UNKNOWN, isCritical(name), detail, 0, null);
+    }
+
+    private boolean isCritical(String name) {
+        return critical.contains(name);
+    }
+}
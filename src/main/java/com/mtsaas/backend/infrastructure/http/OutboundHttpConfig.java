@@ -0,0 +1,67 @@
+package com.mtsaas.backend.infrastructure.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Outbound HTTP clients and their isolation.
+ *
+ * Each external provider gets its own {@link Upstream} (bulkhead, deadline, circuit breaker) and its
+ * own keep-alive connection pool sized to the bulkhead, so one slow provider cannot exhaust threads or
+ * sockets needed by another. Limits are configured under {@code app.http.<name>.*}.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    public static final String LEMON_SQUEEZY = "lemon-squeezy";
+    public static final String SENDGRID = "sendgrid";
+
+    @Bean(destroyMethod = "shutdown")
+    public Upstream lemonSqueezyUpstream(Environment env, MeterRegistry meterRegistry) {
+        return new Upstream(LEMON_SQUEEZY, UpstreamSettings.load(env, LEMON_SQUEEZY), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Upstream sendGridUpstream(Environment env, MeterRegistry meterRegistry) {
+        return new Upstream(SENDGRID, UpstreamSettings.load(env, SENDGRID), meterRegistry);
+    }
+
+    @Bean
+    public RestTemplate lemonSqueezyRestTemplate(@Qualifier("lemonSqueezyHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient lemonSqueezyHttpClient(Environment env) {
+        UpstreamSettings settings = UpstreamSettings.load(env, LEMON_SQUEEZY);
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(settings.maxConnections())
+                        .setMaxConnPerRoute(settings.maxConnections())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                                .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableCookieManagement()
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.mtsaas.backend.infrastructure.http;
+
+import com.mtsaas.backend.application.exception.UpstreamUnavailableException;
+import com.mtsaas.backend.infrastructure.jfr.OutboundHttpEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolates calls to one external service.
+ *
+ * Calls run on the upstream's own bounded thread pool (bulkhead) with an overall deadline, behind a
+ * {@link CircuitBreaker}. A slow or failing provider therefore costs at most its own pool: callers get
+ * an {@link UpstreamUnavailableException} immediately when the pool is full or the circuit is open,
+ * and never wait longer than the deadline. Client errors (4xx) are answers, not failures, and do not
+ * trip the breaker.
+ */
+public class Upstream {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor executor;
+    private final long callTimeoutMs;
+    private final MeterRegistry meterRegistry;
+
+    public Upstream(String name, UpstreamSettings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.circuitBreaker = new CircuitBreaker(settings.breakerFailureThreshold(), settings.breakerOpenMs());
+        this.callTimeoutMs = settings.callTimeoutMs();
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.bulkheadThreads(), settings.bulkheadThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.bulkheadQueue()), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("http.upstream.circuit.open", circuitBreaker,
+                        breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("upstream", name)
+                .description("1 while the circuit breaker refuses calls").register(meterRegistry);
+        Gauge.builder("http.upstream.bulkhead.queue", executor, pool -> pool.getQueue().size())
+                .tag("upstream", name)
+                .description("Calls waiting for a bulkhead thread").register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * State of the circuit breaker: {@code CLOSED}, {@code OPEN} or {@code HALF_OPEN}.
+     */
+    public String getCircuitState() {
+        return circuitBreaker.state().name();
+    }
+
+    /**
+     * Runs {@code task} within the bulkhead, deadline and circuit breaker of this upstream.
+     *
+     * @throws UpstreamUnavailableException if the call is refused, times out or fails with a non-client error
+     * @throws HttpClientErrorException if the upstream answered with a 4xx
+     */
+    public <T> T call(Callable<T> task) {
+        long start = System.nanoTime();
+        OutboundHttpEvent event = new OutboundHttpEvent();
+        event.begin();
+        String outcome = "failure";
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                outcome = "circuit_open";
+                throw new UpstreamUnavailableException(name + " is unavailable (circuit open)");
+            }
+            Future<T> future;
+            try {
+                future = executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                circuitBreaker.onNotPermitted();
+                outcome = "bulkhead_full";
+                throw new UpstreamUnavailableException(name + " is overloaded (bulkhead full)");
+            }
+            try {
+                T result = future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+                circuitBreaker.onSuccess();
+                outcome = "success";
+                return result;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                circuitBreaker.onFailure();
+                outcome = "timeout";
+                throw new UpstreamUnavailableException(name + " did not answer within " + callTimeoutMs + " ms");
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                circuitBreaker.onNotPermitted();
+                Thread.currentThread().interrupt();
+                throw new UpstreamUnavailableException(name + " call interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof HttpClientErrorException clientError) {
+                    circuitBreaker.onSuccess();
+                    outcome = "client_error";
+                    throw clientError;
+                }
+                circuitBreaker.onFailure();
+                throw new UpstreamUnavailableException(name + " call failed: " + cause.getMessage(), cause);
+            }
+        } finally {
+            Timer.builder("http.upstream.calls")
+                    .tag("upstream", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.upstream = name;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
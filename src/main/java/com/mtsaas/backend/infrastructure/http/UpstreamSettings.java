@@ -0,0 +1,33 @@
+package com.mtsaas.backend.infrastructure.http;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Connection, timeout, bulkhead and circuit breaker limits of one upstream, read from
+ * {@code app.http.<name>.*}.
+ */
+public record UpstreamSettings(
+        int maxConnections,
+        int connectTimeoutMs,
+        int readTimeoutMs,
+        int bulkheadThreads,
+        int bulkheadQueue,
+        long callTimeoutMs,
+        int breakerFailureThreshold,
+        long breakerOpenMs) {
+
+    public static UpstreamSettings load(Environment env, String name) {
+        String prefix = "app.http." + name + ".";
+        int bulkheadThreads = env.getProperty(prefix + "bulkhead-threads", Integer.class, 4);
+        int readTimeoutMs = env.getProperty(prefix + "read-timeout-ms", Integer.class, 10_000);
+        return new UpstreamSettings(
+                env.getProperty(prefix + "max-connections", Integer.class, bulkheadThreads),
+                env.getProperty(prefix + "connect-timeout-ms", Integer.class, 2_000),
+                readTimeoutMs,
+                bulkheadThreads,
+                env.getProperty(prefix + "bulkhead-queue", Integer.class, 16),
+                env.getProperty(prefix + "call-timeout-ms", Long.class, readTimeoutMs + 5_000L),
+                env.getProperty(prefix + "breaker-failure-threshold", Integer.class, 5),
+                env.getProperty(prefix + "breaker-open-ms", Long.class, 30_000L));
+    }
+}
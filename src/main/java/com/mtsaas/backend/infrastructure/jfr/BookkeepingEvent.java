@@ -0,0 +1,26 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mtsaas.Bookkeeping")
+@Label("Conversion Bookkeeping")
+@Category({ "MT SaaS", "Database" })
+@Description("Database round trip that checks the quota or credits, logs the conversion and charges it")
+@StackTrace(false)
+public class BookkeepingEvent extends Event {
+
+    @Label("Method")
+    @Description("function (record_conversion) or jpa (fallback)")
+    public String method;
+
+    @Label("Result Code")
+    public String resultCode;
+
+    @Label("Authenticated")
+    public boolean authenticated;
+}
@@ -0,0 +1,60 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.mtsaas.Conversion")
+@Label("Conversion")
+@Category({ "MT SaaS", "Conversion" })
+@Description("One MT/MX conversion with the time spent in each stage")
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    @Label("Direction")
+    public String direction;
+
+    @Label("Message Type")
+    public String messageType;
+
+    @Label("Outcome")
+    @Description("success, or the error code of the failure")
+    public String outcome;
+
+    @Label("Input Size")
+    @DataAmount
+    public long inputSize;
+
+    @Label("Output Size")
+    @DataAmount
+    public long outputSize;
+
+    @Label("Parse")
+    @Timespan
+    public long parse;
+
+    @Label("Dispatch")
+    @Timespan
+    public long dispatch;
+
+    @Label("Auth")
+    @Timespan
+    public long auth;
+
+    @Label("Generate")
+    @Timespan
+    public long generate;
+
+    @Label("Validate")
+    @Timespan
+    public long validate;
+
+    @Label("Bookkeeping")
+    @Timespan
+    public long bookkeeping;
+}
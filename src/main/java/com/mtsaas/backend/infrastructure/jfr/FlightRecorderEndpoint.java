@@ -0,0 +1,39 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/jfr} describes the recording; {@code POST /actuator/jfr} dumps it and returns
+ * the {@code .jfr} file, to open in JDK Mission Control or {@code jfr print}.
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class FlightRecorderEndpoint {
+
+    private final FlightRecorderService flightRecorderService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return flightRecorderService.status();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Resource> dump() throws IOException {
+        try {
+            return new WebEndpointResponse<>(new FileSystemResource(flightRecorderService.dump()));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Continuous flight recording with the application's events.
+ *
+ * When {@code app.jfr.enabled} is set, a bounded recording named {@value #RECORDING_NAME} runs from
+ * startup with the given JDK settings ({@code default} costs about 1% CPU, {@code profile} more) plus the
+ * {@code com.mtsaas.*} events, so a spike can be examined after the fact together with GC, lock and
+ * allocation data. It can be dumped through the {@code jfr} actuator endpoint or with
+ * {@code jcmd <pid> JFR.dump name=mtsaas}. Without it, a dump takes a snapshot of whatever recordings
+ * were started on the command line. The endpoint needs an ADMIN token, and the recording leaves out the
+ * initial environment variables and system properties, which carry the application's secrets; recordings
+ * started on the command line are not filtered.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class FlightRecorderService {
+
+    public static final String RECORDING_NAME = "mtsaas";
+
+    // Would put the environment and system properties, and with them every credential, into each dump
+    private static final List<String> SENSITIVE_EVENTS = List.of("jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty");
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(ConversionEvent.class, XsdEvent.class,
+            BookkeepingEvent.class, OutboundHttpEvent.class);
+
+    @Value("${app.jfr.enabled:false}")
+    private boolean enabled;
+
+    // Name of a JDK configuration (default, profile) or path to a .jfc file
+    @Value("${app.jfr.settings:default}")
+    private String settings;
+
+    @Value("${app.jfr.max-age:30m}")
+    private Duration maxAge;
+
+    @Value("${app.jfr.max-size-mb:100}")
+    private long maxSizeMb;
+
+    // Events shorter than this are not recorded
+    @Value("${app.jfr.event-threshold-ms:0}")
+    private long eventThresholdMs;
+
+    @Value("${app.jfr.dump-directory:${java.io.tmpdir}}")
+    private Path dumpDirectory;
+
+    private Recording recording;
+    private Path lastDump;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Configuration configuration = Files.exists(Path.of(settings))
+                    ? Configuration.create(Path.of(settings))
+                    : Configuration.getConfiguration(settings);
+            recording = new Recording(configuration);
+        } catch (IOException | ParseException e) {
+            log.warn("Cannot load flight recorder settings '{}', not recording: {}", settings, e.getMessage());
+            return;
+        }
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        for (Class<? extends Event> eventClass : EVENTS) {
+            recording.enable(eventClass).withThreshold(Duration.ofMillis(eventThresholdMs));
+        }
+        for (String event : SENSITIVE_EVENTS) {
+            recording.disable(event);
+        }
+        recording.start();
+        log.info("Flight recording '{}' started with settings '{}', keeping {} / {} MB", RECORDING_NAME, settings,
+                maxAge, maxSizeMb);
+    }
+
+    /**
+     * Writes the recorded data to a new file and returns its path; the previous dump is deleted.
+     *
+     * @throws IllegalStateException if nothing is being recorded
+     */
+    public synchronized Path dump() throws IOException {
+        Path target = dumpDirectory.resolve("mtsaas-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.dump(target);
+        } else {
+            try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+                if (snapshot.getSize() == 0) {
+                    throw new IllegalStateException("No flight recording is running; set app.jfr.enabled=true");
+                }
+                snapshot.dump(target);
+            }
+        }
+        if (lastDump != null && !lastDump.equals(target)) {
+            Files.deleteIfExists(lastDump);
+        }
+        lastDump = target;
+        log.info("Flight recording dumped to {}", target);
+        return target;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("settings", settings);
+        status.put("state", recording != null ? recording.getState().name() : "NOT_STARTED");
+        status.put("maxAge", maxAge.toString());
+        status.put("maxSizeMb", maxSizeMb);
+        if (recording != null) {
+            status.put("sizeBytes", recording.getSize());
+            status.put("startTime", String.valueOf(recording.getStartTime()));
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mtsaas.OutboundHttp")
+@Label("Outbound HTTP Call")
+@Category({ "MT SaaS", "HTTP" })
+@Description("Call to an external provider through its bulkhead and circuit breaker")
+@StackTrace(false)
+public class OutboundHttpEvent extends Event {
+
+    @Label("Upstream")
+    public String upstream;
+
+    @Label("Outcome")
+    public String outcome;
+}
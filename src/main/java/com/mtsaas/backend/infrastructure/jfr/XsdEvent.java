@@ -0,0 +1,33 @@
+package com.mtsaas.backend.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mtsaas.Xsd")
+@Label("XSD Operation")
+@Category({ "MT SaaS", "XML" })
+@Description("Compilation of an XSD or validation of a document against it")
+@StackTrace(false)
+public class XsdEvent extends Event {
+
+    public static final String COMPILE = "compile";
+    public static final String VALIDATE = "validate";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Schema")
+    public String schema;
+
+    @Label("Document Size")
+    @DataAmount
+    public long documentSize;
+
+    @Label("Success")
+    public boolean success;
+}
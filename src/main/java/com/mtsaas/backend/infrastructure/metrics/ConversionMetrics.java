@@ -0,0 +1,214 @@
+package com.mtsaas.backend.infrastructure.metrics;
+
+import com.mtsaas.backend.infrastructure.jfr.ConversionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-stage timing of conversions.
+ *
+ * A conversion opens {@link Stages} and times each of its stages into it. The message type is only
+ * known once the input is parsed and dispatched to a generator (unsupported types stay "unknown"), so
+ * timings are buffered and published when the conversion ends:
+ * {@code conversion.stage} timers tagged with stage, direction and type, a {@code conversion.duration}
+ * timer tagged with the outcome, and a {@code conversion.failures} counter tagged with the stage that
+ * failed and the error code. Histograms and SLO buckets are configured under
+ * {@code management.metrics.distribution.*}.
+ *
+ * Code that runs inside a stage without access to it (XSD validation inside a generator) reports
+ * through {@link #recordNested}; that time is moved out of the enclosing stage into its own.
+ *
+ * Each conversion is also emitted as a {@link ConversionEvent} when a flight recording has it enabled.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversionMetrics {
+
+    public static final String MT_TO_MX = "MT_TO_MX";
+    public static final String MX_TO_MT = "MX_TO_MT";
+
+    private static final ThreadLocal<Stages> CURRENT = new ThreadLocal<>();
+    private static final Pattern MT_TYPE = Pattern.compile("(?:MT)?(\\d{3}(?:COV)?)");
+    private static final Pattern MX_TYPE = Pattern.compile("^([a-z]{4}\\.\\d{3})");
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    public Stages start(String direction) {
+        Stages stages = new Stages(direction);
+        CURRENT.set(stages);
+        return stages;
+    }
+
+    /**
+     * Adds the time of a nested stage to the conversion running on this thread, if any.
+     */
+    public static void recordNested(String stage, long nanos, boolean failed) {
+        Stages stages = CURRENT.get();
+        if (stages != null) {
+            stages.nested(stage, nanos, failed);
+        }
+    }
+
+    private record StageTime(String stage, long nanos) {
+    }
+
+    /**
+     * Stage timings of one conversion; publishes them on {@link #close}.
+     */
+    public final class Stages implements AutoCloseable {
+
+        private final String direction;
+        private final long startNanos = System.nanoTime();
+        private final ConversionEvent event = new ConversionEvent();
+        private final List<StageTime> times = new ArrayList<>();
+        private long inputSize;
+        private long outputSize;
+        private String type = UNKNOWN;
+        private String currentStage = "start";
+        private long nestedNanos;
+        private String failedNestedStage;
+        private String failedStage;
+        private String failureCode;
+
+        private Stages(String direction) {
+            this.direction = direction;
+            event.begin();
+        }
+
+        /** Records input and output lengths in characters, for the flight recorder event. */
+        public void sizes(long input, long output) {
+            inputSize = input;
+            outputSize = output;
+        }
+
+        /**
+         * Sets the message type tag; anything but a known MT or MX type shape becomes "unknown". Call it only
+         * once a generator has accepted the type, so callers cannot mint new tag values.
+         */
+        public void type(String messageType) {
+            type = normalizeType(messageType);
+        }
+
+        /**
+         * Runs {@code action} as {@code stage}; time reported by nested stages meanwhile is not counted twice.
+         */
+        public <T> T time(String stage, Supplier<T> action) {
+            currentStage = stage;
+            failedNestedStage = null;
+            long nestedBefore = nestedNanos;
+            long start = System.nanoTime();
+            try {
+                return action.get();
+            } finally {
+                long elapsed = System.nanoTime() - start - (nestedNanos - nestedBefore);
+                times.add(new StageTime(stage, Math.max(0, elapsed)));
+            }
+        }
+
+        /**
+         * Marks the conversion failed with {@code code}, in the current stage or in the nested stage
+         * that failed within it.
+         */
+        public void fail(String code) {
+            if (failureCode == null) {
+                failedStage = failedNestedStage != null ? failedNestedStage : currentStage;
+                failureCode = code;
+            }
+        }
+
+        /** Whether a nested stage failed during the last timed stage. */
+        public boolean nestedStageFailed() {
+            return failedNestedStage != null;
+        }
+
+        private void nested(String stage, long nanos, boolean failed) {
+            nestedNanos += nanos;
+            times.add(new StageTime(stage, nanos));
+            if (failed) {
+                failedNestedStage = stage;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+            for (StageTime time : times) {
+                Timer.builder("conversion.stage")
+                        .description("Time spent in one stage of a conversion")
+                        .tag("stage", time.stage())
+                        .tag("direction", direction)
+                        .tag("type", type)
+                        .register(meterRegistry)
+                        .record(time.nanos(), TimeUnit.NANOSECONDS);
+            }
+            Timer.builder("conversion.duration")
+                    .description("Time spent in a conversion, end to end")
+                    .tag("direction", direction)
+                    .tag("type", type)
+                    .tag("outcome", failureCode == null ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            commitEvent();
+            if (failureCode != null) {
+                Counter.builder("conversion.failures")
+                        .description("Failed conversions by stage and error code")
+                        .tag("direction", direction)
+                        .tag("type", type)
+                        .tag("stage", failedStage)
+                        .tag("code", failureCode)
+                        .register(meterRegistry)
+                        .increment();
+            }
+        }
+
+        private void commitEvent() {
+            event.end();
+            if (!event.shouldCommit()) {
+                return;
+            }
+            event.direction = direction;
+            event.messageType = type;
+            event.outcome = failureCode == null ? "success" : failureCode;
+            event.inputSize = inputSize;
+            event.outputSize = outputSize;
+            for (StageTime time : times) {
+                switch (time.stage()) {
+                    case "parse" -> event.parse += time.nanos();
+                    case "dispatch" -> event.dispatch += time.nanos();
+                    case "auth" -> event.auth += time.nanos();
+                    case "generate" -> event.generate += time.nanos();
+                    case "validate" -> event.validate += time.nanos();
+                    case "bookkeeping" -> event.bookkeeping += time.nanos();
+                    default -> {
+                    }
+                }
+            }
+            event.commit();
+        }
+
+        private String normalizeType(String messageType) {
+            if (messageType == null) {
+                return UNKNOWN;
+            }
+            if (MT_TO_MX.equals(direction)) {
+                Matcher matcher = MT_TYPE.matcher(messageType.trim().toUpperCase());
+                return matcher.matches() ? "MT" + matcher.group(1) : UNKNOWN;
+            }
+            Matcher matcher = MX_TYPE.matcher(messageType.trim());
+            return matcher.find() ? matcher.group(1) : UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.mtsaas.backend.infrastructure.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Runs the Redis checks a request needs (revocation, rate limits, ...) in one round trip.
+ *
+ * Callers add checks to a {@link Batch} and execute it once; all checks are evaluated by a single
+ * atomic Lua call. If Redis cannot be reached, each check resolves according to its own
+ * {@link FailurePolicy} instead of failing the request.
+ */
+@Service
+@Slf4j
+public class RedisRequestGateway {
+
+    public enum FailurePolicy {
+        /** Behave as if the check passed: key absent, request allowed. */
+        OPEN,
+        /** Behave as if the check failed: key present, request denied. */
+        CLOSED
+    }
+
+    public record BucketState(boolean allowed, long remaining, long retryAfterMs) {
+    }
+
+    private static final long FAIL_CLOSED_RETRY_MS = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<List> script;
+
+    public RedisRequestGateway(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.script = new DefaultRedisScript<>();
+        this.script.setLocation(new ClassPathResource("scripts/request_checks.lua"));
+        this.script.setResultType(List.class);
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * One check of a batch; its value is available once the batch has been executed.
+     */
+    public static final class Check<T> {
+
+        private final String key;
+        private final List<String> args;
+        private final Function<List<?>, T> reader;
+        private final T fallback;
+        private T value;
+        private boolean failed;
+
+        private Check(String key, List<String> args, Function<List<?>, T> reader, T fallback) {
+            this.key = key;
+            this.args = args;
+            this.reader = reader;
+            this.fallback = fallback;
+        }
+
+        public T get() {
+            return value;
+        }
+
+        /** Whether the value comes from the failure policy rather than from Redis. */
+        public boolean failed() {
+            return failed;
+        }
+
+        private void complete(Object result) {
+            value = reader.apply((List<?>) result);
+        }
+
+        private void fail() {
+            value = fallback;
+            failed = true;
+        }
+    }
+
+    public final class Batch {
+
+        private final List<Check<?>> checks = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        public Check<Boolean> exists(String key, FailurePolicy policy) {
+            return add(new Check<>(key, List.of("exists"),
+                    result -> ((Number) result.get(0)).longValue() == 1,
+                    policy == FailurePolicy.CLOSED));
+        }
+
+        /**
+         * Takes one token from a bucket of {@code capacity} tokens that refills completely over {@code refillPeriod}.
+         */
+        public Check<BucketState> tokenBucket(String key, long capacity, Duration refillPeriod, FailurePolicy policy) {
+            double refillPerMs = (double) capacity / Math.max(refillPeriod.toMillis(), 1);
+            return add(new Check<>(key, List.of("bucket", Long.toString(capacity), Double.toString(refillPerMs), "1"),
+                    result -> new BucketState(((Number) result.get(0)).longValue() == 1,
+                            ((Number) result.get(1)).longValue(),
+                            ((Number) result.get(2)).longValue()),
+                    policy == FailurePolicy.OPEN
+                            ? new BucketState(true, capacity, 0)
+                            : new BucketState(false, 0, FAIL_CLOSED_RETRY_MS)));
+        }
+
+        public boolean isEmpty() {
+            return checks.isEmpty();
+        }
+
+        public void execute() {
+            if (checks.isEmpty()) {
+                return;
+            }
+            List<String> keys = new ArrayList<>(checks.size());
+            List<String> args = new ArrayList<>();
+            for (Check<?> check : checks) {
+                keys.add(check.key);
+                args.addAll(check.args);
+            }
+            List<?> results;
+            try {
+                results = redisTemplate.execute(script, keys, args.toArray());
+            } catch (Exception e) {
+                log.warn("Redis request checks failed, applying failure policies: {}", e.getMessage());
+                checks.forEach(Check::fail);
+                return;
+            }
+            for (int i = 0; i < checks.size(); i++) {
+                if (results != null && i < results.size()) {
+                    checks.get(i).complete(results.get(i));
+                } else {
+                    checks.get(i).fail();
+                }
+            }
+        }
+
+        private <T> Check<T> add(Check<T> check) {
+            checks.add(check);
+            return check;
+        }
+    }
+}
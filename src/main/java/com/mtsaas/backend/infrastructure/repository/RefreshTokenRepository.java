@@ -3,7 +3,11 @@ package com.mtsaas.backend.infrastructure.repository;
 import com.mtsaas.backend.domain.RefreshToken;
 import com.mtsaas.backend.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -15,5 +19,20 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID
 
     void deleteAllByUser(User user);
 
-    void deleteByExpiresAtBefore(LocalDateTime threshold);
+    /**
+     * Revokes the token unless it already was; returns 1 only for the caller that revoked it
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now, t.lastUsedAt = :now WHERE t.id = :id AND t.revokedAt IS NULL")
+    int revokeIfActive(@Param("id") UUID id, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes up to {@code limit} expired tokens in one statement
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+            + "(SELECT id FROM refresh_tokens WHERE expires_at < :threshold LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("threshold") LocalDateTime threshold, @Param("limit") int limit);
 }
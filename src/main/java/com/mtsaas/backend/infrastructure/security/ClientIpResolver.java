@@ -0,0 +1,22 @@
+package com.mtsaas.backend.infrastructure.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the originating client IP behind the load balancer.
+ *
+ * {@code X-Forwarded-For} is set by the client as much as by the proxies, so it is not read here: with
+ * {@code server.forward-headers-strategy=native} Tomcat's {@code RemoteIpValve} walks the header from the
+ * right, skips the trusted proxies ({@code server.tomcat.remoteip.internal-proxies}) and exposes the first
+ * other address as the remote address. Entries a client prepends never get that far, so per-IP limits
+ * cannot be dodged by rotating the header.
+ */
+public final class ClientIpResolver {
+
+    private ClientIpResolver() {
+    }
+
+    public static String resolve(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
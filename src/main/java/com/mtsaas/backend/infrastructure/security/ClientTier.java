@@ -0,0 +1,23 @@
+package com.mtsaas.backend.infrastructure.security;
+
+import com.mtsaas.backend.domain.Role;
+import com.mtsaas.backend.domain.User;
+
+/**
+ * Service tier of the caller, shared by the rate limits and the conversion concurrency lanes.
+ *
+ * The user record stores no plan; a customer counts as paid once they have bought credits.
+ */
+public enum ClientTier {
+    ANONYMOUS, FREE, PAID, ADMIN;
+
+    public static ClientTier of(User user) {
+        if (user == null) {
+            return ANONYMOUS;
+        }
+        if (user.getRole() == Role.ADMIN) {
+            return ADMIN;
+        }
+        return user.getCreditsPurchasedAt() != null ? PAID : FREE;
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,28 +69,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
             
-            userEmail = jwtService.extractUsername(jwt);
+            // Verify signature and expiry once; later checks and handlers reuse the claims
+            Claims claims = jwtService.parseToken(jwt);
+            request.setAttribute(JwtService.CLAIMS_ATTRIBUTE, claims);
+            userEmail = claims.getSubject();
             
-            // Check if token is blacklisted (logged out)
-            if (tokenBlacklistService.isBlacklisted(jwt)) {
-                LOGGER.info("Token is blacklisted (user logged out)");
-                SecurityContextHolder.clearContext();
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json");
-                response.setHeader("WWW-Authenticate", "Bearer error=\"invalid_token\", error_description=\"Token has been revoked\"");
-                try {
-                    response.getWriter().write("{\"error\":\"token_revoked\",\"message\":\"Token has been revoked\"}");
-                } catch (IOException io) {
-                    LOGGER.warn("Failed to write response body for blacklisted token", io);
-                }
-                return;
+            // Possibly blacklisted (logged out): RequestChecksFilter confirms it in the same Redis
+            // round trip as the rate limits and rejects the request before it reaches a handler
+            String revocationKey = tokenBlacklistService.revocationKeyToConfirm(claims, jwt);
+            if (revocationKey != null) {
+                request.setAttribute(TokenBlacklistService.PENDING_REVOCATION_ATTRIBUTE, revocationKey);
             }
             
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 var user = userRepository.findByEmail(userEmail).orElse(null);
                 if (user != null) {
                     UserDetails userDetails = new SecurityUser(user);
-                    if (jwtService.isTokenValid(jwt, userDetails)) {
+                    if (jwtService.isTokenValid(claims, userDetails)) {
                         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                                 userDetails,
                                 null,
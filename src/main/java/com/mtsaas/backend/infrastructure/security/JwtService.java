@@ -1,49 +1,142 @@
 package com.mtsaas.backend.infrastructure.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies access tokens.
+ *
+ * Signing keys are decoded once at startup. Tokens are signed with the current key and carry its id
+ * in the {@code kid} header; verification accepts the current key plus the keys listed in
+ * {@code app.jwt.previous-secret-keys}, so the secret can be rotated without logging everyone out.
+ * Verified claims are cached on the request by {@link JwtAuthenticationFilter} under
+ * {@link #CLAIMS_ATTRIBUTE}, so a token is parsed once per request. Each token has a unique {@code jti}
+ * used to revoke it on logout.
+ */
 @Service
 public class JwtService {
 
+    public static final String CLAIMS_ATTRIBUTE = JwtService.class.getName() + ".claims";
+
+    private static final int MAX_ACTIVE_KEYS = 4;
+
     @Value("${app.jwt.secret-key:${app.jwt.secret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970}}")
     private String secretKey;
 
+    // Comma-separated Base64 keys still accepted for verification after a rotation
+    @Value("${app.jwt.previous-secret-keys:}")
+    private String previousSecretKeys;
+
     @Value("${app.jwt.access-token-expiration-ms:900000}")
     private long accessTokenExpirationMs;
 
+    private Key signingKey;
+    private String signingKeyId;
+    private Map<String, Key> verificationKeys;
+    private JwtParser parser;
+    private List<JwtParser> legacyParsers;
+
+    @PostConstruct
+    public void init() {
+        signingKey = decodeKey(secretKey);
+        signingKeyId = keyId(signingKey);
+
+        verificationKeys = new LinkedHashMap<>();
+        verificationKeys.put(signingKeyId, signingKey);
+        if (previousSecretKeys != null && !previousSecretKeys.isBlank()) {
+            Arrays.stream(previousSecretKeys.split(","))
+                    .map(String::trim)
+                    .filter(value -> !value.isEmpty())
+                    .limit(MAX_ACTIVE_KEYS - 1L)
+                    .map(JwtService::decodeKey)
+                    .forEach(key -> verificationKeys.putIfAbsent(keyId(key), key));
+        }
+
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        Key key = header.getKeyId() != null ? verificationKeys.get(header.getKeyId()) : null;
+                        return key != null ? key : signingKey;
+                    }
+                })
+                .build();
+
+        // Tokens issued before key ids were added have no kid; try each previous key for those
+        legacyParsers = new ArrayList<>();
+        verificationKeys.values().stream()
+                .filter(key -> key != signingKey)
+                .forEach(key -> legacyParsers.add(Jwts.parserBuilder().setSigningKey(key).build()));
+    }
+
+    /**
+     * Verifies the token signature and expiry and returns its claims.
+     *
+     * @throws io.jsonwebtoken.ExpiredJwtException if the token is expired
+     * @throws io.jsonwebtoken.JwtException if the token is malformed or not signed by an active key
+     */
+    public Claims parseToken(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (SignatureException e) {
+            for (JwtParser legacyParser : legacyParsers) {
+                try {
+                    return legacyParser.parseClaimsJws(token).getBody();
+                } catch (SignatureException ignored) {
+                    // Try the next active key
+                }
+            }
+            throw e;
+        }
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
     }
-    
+
     public String generateToken(String email) {
         return Jwts
                 .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(email)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + accessTokenExpirationMs))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -54,48 +147,48 @@ public class JwtService {
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts
                 .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseToken(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Checks already verified claims against the user, without parsing the token again.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject())
+                && claims.getExpiration() != null
+                && claims.getExpiration().after(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-    
     /**
      * Extract expiration time as milliseconds since epoch
      * Used for token blacklist management
      */
     public long extractExpirationTime(String token) {
-        return extractExpiration(token).getTime();
+        return extractClaim(token, Claims::getExpiration).getTime();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+    private static Key decodeKey(String base64Key) {
+        byte[] keyBytes = Decoders.BASE64.decode(base64Key);
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    
+    private static String keyId(Key key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package com.mtsaas.backend.infrastructure.security;
+
+import com.mtsaas.backend.application.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Throttles password logins per client IP after repeated failures.
+ *
+ * Failures are counted in Redis over a fixed window. Once an IP reaches the limit its logins are
+ * refused before any password is hashed, so credential stuffing cannot buy BCrypt time. Every attempt is
+ * checked and counted by one script before the password is verified, so parallel attempts cannot all pass
+ * the check before any failure is recorded; an attempt that does not fail on the password is released
+ * afterwards. The counter gets its expiry with the first attempt, and a counter left without one is given
+ * one on the next check. The IP comes from {@link ClientIpResolver}. Redis errors never block a login.
+ */
+@Service
+@Slf4j
+public class LoginThrottleService {
+
+    private static final String KEY_PREFIX = "login:failures:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> attemptScript;
+    private final DefaultRedisScript<Long> releaseScript;
+    private final Counter throttled;
+    private final Counter failures;
+
+    @Value("${app.security.login-throttle.max-failures:10}")
+    private int maxFailures;
+
+    @Value("${app.security.login-throttle.window-seconds:900}")
+    private long windowSeconds;
+
+    public LoginThrottleService(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.attemptScript = new DefaultRedisScript<>();
+        this.attemptScript.setLocation(new ClassPathResource("scripts/login_attempt.lua"));
+        this.attemptScript.setResultType(Long.class);
+        this.releaseScript = new DefaultRedisScript<>();
+        this.releaseScript.setLocation(new ClassPathResource("scripts/login_attempt_release.lua"));
+        this.releaseScript.setResultType(Long.class);
+        this.throttled = Counter.builder("auth.login.throttled")
+                .description("Logins refused because the client IP failed too often").register(meterRegistry);
+        this.failures = Counter.builder("auth.login.failures")
+                .description("Failed password logins").register(meterRegistry);
+    }
+
+    /**
+     * Counts a login attempt as failed until {@link #releaseAttempt} says otherwise.
+     *
+     * @throws TooManyRequestsException if the IP has used up its failed attempts for the window
+     */
+    public void beginAttempt(String clientIp) {
+        String key = KEY_PREFIX + clientIp;
+        try {
+            Long retryAfterSeconds = redisTemplate.execute(attemptScript, List.of(key), Integer.toString(maxFailures),
+                    Long.toString(windowSeconds));
+            if (retryAfterSeconds != null && retryAfterSeconds > 0) {
+                throttled.increment();
+                log.info("Login throttled for IP {}", clientIp);
+                throw new TooManyRequestsException("Too many failed login attempts. Please try again later.",
+                        retryAfterSeconds);
+            }
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Could not check login throttle for {}: {}", clientIp, e.getMessage());
+        }
+    }
+
+    /**
+     * Takes back an attempt that did not fail on the password (it succeeded, or never got to the check).
+     */
+    public void releaseAttempt(String clientIp) {
+        try {
+            redisTemplate.execute(releaseScript, List.of(KEY_PREFIX + clientIp));
+        } catch (Exception e) {
+            log.warn("Could not release login attempt for {}: {}", clientIp, e.getMessage());
+        }
+    }
+
+    /**
+     * Counts a failed password login in the metrics; the attempt itself stays counted for the IP.
+     */
+    public void recordFailure() {
+        failures.increment();
+    }
+}
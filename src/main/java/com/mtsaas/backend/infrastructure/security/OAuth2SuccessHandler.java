@@ -9,14 +9,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,10 +28,10 @@ import java.util.Optional;
 public class OAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
     private final UserRepository userRepository;
-    
-    @Autowired
-    @Lazy
-    private AuthService authService;
+
+    // Looked up on use to break the cycle through the security configuration. Not a @Lazy proxy: AOT
+    // pre-generates proxy classes in build order, and a second proxy of AuthService would clash at runtime
+    private final ObjectProvider<AuthService> authServiceProvider;
 
     @Value("${app.jwt.refresh-token-expiration-ms:1209600000}")
     private long refreshTokenExpirationMs;
@@ -99,7 +98,7 @@ public class OAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler
 
             }
 
-            AuthService.AuthSession authSession = authService.createSessionForUser(user);
+            AuthService.AuthSession authSession = authServiceProvider.getObject().createSessionForUser(user);
             response.addHeader("Set-Cookie", ResponseCookie.from(refreshCookieName, authSession.getRefreshToken())
                     .httpOnly(true)
                     .secure(refreshCookieSecure)
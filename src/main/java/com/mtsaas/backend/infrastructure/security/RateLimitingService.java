@@ -1,42 +1,98 @@
 package com.mtsaas.backend.infrastructure.security;
 
+import com.mtsaas.backend.infrastructure.redis.RedisRequestGateway;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Token-bucket rate limiting evaluated atomically in Redis through {@link RedisRequestGateway}.
+ *
+ * A bucket holds {@code capacity} tokens and refills completely over {@code refillPeriod}. Keys that
+ * were just denied are remembered locally until their retry time, so a client hammering a limit is
+ * turned away without touching Redis. Bucket checks can join a request's gateway batch so they share
+ * the round trip with its other Redis checks.
+ */
 @Service
 @RequiredArgsConstructor
 public class RateLimitingService {
 
-    private final StringRedisTemplate redisTemplate;
+    public record Decision(boolean allowed, long limit, long remaining, long retryAfterMs) {
+    }
+
+    private static final String KEY_PREFIX = "rl:";
+    private static final int MAX_LOCAL_DENIALS = 10_000;
+
+    private final RedisRequestGateway redisGateway;
+    private final Map<String, Long> deniedUntil = new ConcurrentHashMap<>();
+
+    // Limits protect capacity; by default they must not take the API down with Redis
+    @Value("${app.rate-limit.redis-failure-policy:OPEN}")
+    private RedisRequestGateway.FailurePolicy failurePolicy = RedisRequestGateway.FailurePolicy.OPEN;
 
     /**
      * Checks if a request is allowed based on the rate limit.
-     * 
+     *
      * @param key             The unique identifier for the action/user (e.g., "resend_email:user@example.com")
      * @param limit           The maximum number of allowed requests in the time window
      * @param windowInSeconds The time window in seconds
      * @return true if the request is allowed, false if the rate limit is exceeded
      */
     public boolean isAllowed(String key, int limit, long windowInSeconds) {
-        String countStr = redisTemplate.opsForValue().get(key);
-        
-        if (countStr == null) {
-            // First request in the window
-            redisTemplate.opsForValue().set(key, "1", Duration.ofSeconds(windowInSeconds));
-            return true;
+        return tryConsume(key, limit, Duration.ofSeconds(windowInSeconds)).allowed();
+    }
+
+    public Decision tryConsume(String key, long capacity, Duration refillPeriod) {
+        Decision cached = cachedDenial(key, capacity);
+        if (cached != null) {
+            return cached;
+        }
+        RedisRequestGateway.Batch batch = redisGateway.newBatch();
+        RedisRequestGateway.Check<RedisRequestGateway.BucketState> check = addTo(batch, key, capacity, refillPeriod);
+        batch.execute();
+        return complete(key, capacity, check);
+    }
+
+    /**
+     * Returns the denial remembered for a key that is still waiting out its retry time, or null.
+     */
+    public Decision cachedDenial(String key, long capacity) {
+        Long blockedUntil = deniedUntil.get(key);
+        if (blockedUntil == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (blockedUntil > now) {
+            return new Decision(false, capacity, 0, blockedUntil - now);
         }
+        deniedUntil.remove(key, blockedUntil);
+        return null;
+    }
 
-        int count = Integer.parseInt(countStr);
-        if (count >= limit) {
-            // Rate limit exceeded
-            return false;
+    /**
+     * Adds the bucket check for {@code key} to a gateway batch; call {@link #complete} after it ran.
+     */
+    public RedisRequestGateway.Check<RedisRequestGateway.BucketState> addTo(RedisRequestGateway.Batch batch,
+            String key, long capacity, Duration refillPeriod) {
+        return batch.tokenBucket(KEY_PREFIX + key, capacity, refillPeriod, failurePolicy);
+    }
+
+    public Decision complete(String key, long capacity, RedisRequestGateway.Check<RedisRequestGateway.BucketState> check) {
+        RedisRequestGateway.BucketState state = check.get();
+        if (!state.allowed() && !check.failed() && deniedUntil.size() < MAX_LOCAL_DENIALS) {
+            deniedUntil.put(key, System.currentTimeMillis() + state.retryAfterMs());
         }
+        return new Decision(state.allowed(), capacity, state.remaining(), state.retryAfterMs());
+    }
 
-        // Increment the count (keeps the existing TTL)
-        redisTemplate.opsForValue().increment(key);
-        return true;
+    @Scheduled(fixedRate = 60000)
+    public void evictExpiredDenials() {
+        long now = System.currentTimeMillis();
+        deniedUntil.entrySet().removeIf(entry -> entry.getValue() <= now);
     }
 }
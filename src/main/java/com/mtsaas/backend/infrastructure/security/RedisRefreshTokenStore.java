@@ -0,0 +1,112 @@
+package com.mtsaas.backend.infrastructure.security;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Refresh tokens kept in Redis instead of the {@code refresh_tokens} table.
+ *
+ * Each token hash maps to its owner with a TTL equal to the token lifetime, so expiry needs no cleanup
+ * job. Rotation consumes the old token with GETDEL and stores the new one in the same script, so a
+ * token can be used exactly once even under concurrent refreshes. A per-user set of token hashes
+ * supports revoking every session of a user. Every key a script touches is passed in {@code KEYS}, so
+ * the caller must know the owner before rotating: tokens from this store carry the user id as a prefix
+ * ({@link #userIdOf}), and for older tokens without it the owner is read first ({@link #ownerOf}).
+ */
+@Component
+class RedisRefreshTokenStore {
+
+    record TokenOwner(UUID userId, String email) {
+    }
+
+    private static final String TOKEN_PREFIX = "refresh:token:";
+    private static final String USER_PREFIX = "refresh:user:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<String> issueScript;
+
+    RedisRefreshTokenStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.issueScript = new DefaultRedisScript<>();
+        this.issueScript.setLocation(new ClassPathResource("scripts/refresh_token_issue.lua"));
+        this.issueScript.setResultType(String.class);
+    }
+
+    /**
+     * A raw token for {@code userId}: the user id, a dot and {@code random}.
+     */
+    static String rawToken(UUID userId, String random) {
+        return userId + "." + random;
+    }
+
+    /**
+     * The user id prefix of a raw token from {@link #rawToken}, or empty for tokens without one.
+     */
+    static Optional<UUID> userIdOf(String rawToken) {
+        int separator = rawToken.indexOf('.');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(UUID.fromString(rawToken.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    void issue(TokenOwner owner, String tokenHash, long ttlMs) {
+        redisTemplate.execute(issueScript, List.of(TOKEN_PREFIX + tokenHash, USER_PREFIX + owner.userId()),
+                owner.userId() + ":" + owner.email(), Long.toString(ttlMs), tokenHash);
+    }
+
+    /**
+     * The owner of a stored token, for tokens whose raw form does not name the user.
+     */
+    Optional<TokenOwner> ownerOf(String tokenHash) {
+        return Optional.ofNullable(redisTemplate.opsForValue().get(TOKEN_PREFIX + tokenHash))
+                .map(RedisRefreshTokenStore::parseOwner);
+    }
+
+    /**
+     * Consumes {@code oldHash} and stores {@code newHash} for the same owner.
+     *
+     * @return the owner, or empty if the old token is unknown, expired, already used or not {@code userId}'s
+     */
+    Optional<TokenOwner> rotate(UUID userId, String oldHash, String newHash, long ttlMs) {
+        String owner = redisTemplate.execute(issueScript,
+                List.of(TOKEN_PREFIX + newHash, USER_PREFIX + userId, TOKEN_PREFIX + oldHash),
+                userId + ":", Long.toString(ttlMs), newHash, oldHash);
+        return Optional.ofNullable(owner).map(RedisRefreshTokenStore::parseOwner);
+    }
+
+    void revoke(String tokenHash) {
+        String owner = redisTemplate.opsForValue().getAndDelete(TOKEN_PREFIX + tokenHash);
+        if (owner != null) {
+            redisTemplate.opsForSet().remove(USER_PREFIX + parseOwner(owner).userId(), tokenHash);
+        }
+    }
+
+    void revokeAll(UUID userId) {
+        String userKey = USER_PREFIX + userId;
+        Set<String> hashes = redisTemplate.opsForSet().members(userKey);
+        List<String> keys = new ArrayList<>();
+        keys.add(userKey);
+        if (hashes != null) {
+            hashes.forEach(hash -> keys.add(TOKEN_PREFIX + hash));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    private static TokenOwner parseOwner(String value) {
+        int separator = value.indexOf(':');
+        return new TokenOwner(UUID.fromString(value.substring(0, separator)), value.substring(separator + 1));
+    }
+}
@@ -3,61 +3,182 @@ package com.mtsaas.backend.infrastructure.security;
 import com.mtsaas.backend.domain.RefreshToken;
 import com.mtsaas.backend.domain.User;
 import com.mtsaas.backend.infrastructure.repository.RefreshTokenRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.UUID;
 
+/**
+ * Issues, rotates and revokes refresh tokens.
+ *
+ * Tokens live in the {@code refresh_tokens} table by default, or in Redis when
+ * {@code app.auth.refresh-tokens.store=redis} ({@link RedisRefreshTokenStore}). With the Redis store, the
+ * table is consulted only until {@code app.auth.refresh-tokens.database-fallback-until}, the date by which
+ * every token issued before the switch has expired (the switch date plus the refresh token lifetime):
+ * until then such a token keeps working once and is rotated into Redis, and revocations clear the table
+ * too. Tokens issued by the Redis store name their user, so they never fall back to the table, and after
+ * that date unknown tokens cost no database query at all. Either way a token can be rotated only once.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class RefreshTokenService {
 
+    /** Outcome of a successful rotation: who the token belonged to and its replacement. */
+    public record Rotation(UUID userId, String email, String refreshToken) {
+    }
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final TokenGeneratorService tokenGeneratorService;
+    private final RedisRefreshTokenStore redisStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${app.jwt.refresh-token-expiration-ms:1209600000}")
     private long refreshTokenExpirationMs;
 
-    @Transactional
+    @Value("${app.auth.refresh-tokens.store:database}")
+    private String store;
+
+    @Value("${app.auth.refresh-tokens.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    // ISO date; empty when no tokens issued before the switch to Redis need to keep working
+    @Value("${app.auth.refresh-tokens.database-fallback-until:}")
+    private String databaseFallbackUntil;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+            TokenGeneratorService tokenGeneratorService, RedisRefreshTokenStore redisStore,
+            PlatformTransactionManager transactionManager) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tokenGeneratorService = tokenGeneratorService;
+        this.redisStore = redisStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     public String issueToken(User user) {
+        if (useRedis()) {
+            String rawToken = RedisRefreshTokenStore.rawToken(user.getId(), tokenGeneratorService.generateRawToken());
+            redisStore.issue(new RedisRefreshTokenStore.TokenOwner(user.getId(), user.getEmail()),
+                    tokenGeneratorService.hashToken(rawToken), refreshTokenExpirationMs);
+            return rawToken;
+        }
         String rawToken = tokenGeneratorService.generateRawToken();
-        String tokenHash = tokenGeneratorService.hashToken(rawToken);
-        RefreshToken refreshToken = RefreshToken.builder()
-                .user(user)
-                .tokenHash(tokenHash)
-                .expiresAt(LocalDateTime.now().plusNanos(refreshTokenExpirationMs * 1_000_000L))
-                .build();
-        refreshTokenRepository.save(refreshToken);
+        saveToDatabase(user, tokenGeneratorService.hashToken(rawToken));
         return rawToken;
     }
 
-    @Transactional(readOnly = true)
-    public Optional<RefreshToken> findValidToken(String rawToken) {
+    /**
+     * Consumes a refresh token and issues its replacement.
+     *
+     * @return the rotation, or empty if the token is unknown, expired, revoked or already used
+     */
+    public Optional<Rotation> rotate(String rawToken) {
+        String tokenHash = tokenGeneratorService.hashToken(rawToken);
+
+        if (useRedis()) {
+            Optional<UUID> userId = RedisRefreshTokenStore.userIdOf(rawToken);
+            if (userId.isEmpty()) {
+                // Issued by the Redis store before tokens named their user
+                userId = redisStore.ownerOf(tokenHash).map(RedisRefreshTokenStore.TokenOwner::userId);
+            }
+            if (userId.isPresent()) {
+                String newRawToken = RedisRefreshTokenStore.rawToken(userId.get(),
+                        tokenGeneratorService.generateRawToken());
+                return redisStore.rotate(userId.get(), tokenHash, tokenGeneratorService.hashToken(newRawToken),
+                                refreshTokenExpirationMs)
+                        .map(owner -> new Rotation(owner.userId(), owner.email(), newRawToken));
+            }
+            if (!databaseFallbackActive()) {
+                return Optional.empty();
+            }
+            // Tokens issued before the switch to Redis are still in the table
+            return transactionTemplate.execute(status -> consumeFromDatabase(tokenHash).map(user -> {
+                String newRawToken = RedisRefreshTokenStore.rawToken(user.getId(),
+                        tokenGeneratorService.generateRawToken());
+                redisStore.issue(new RedisRefreshTokenStore.TokenOwner(user.getId(), user.getEmail()),
+                        tokenGeneratorService.hashToken(newRawToken), refreshTokenExpirationMs);
+                return new Rotation(user.getId(), user.getEmail(), newRawToken);
+            }));
+        }
+
+        String newRawToken = tokenGeneratorService.generateRawToken();
+        String newTokenHash = tokenGeneratorService.hashToken(newRawToken);
+        return transactionTemplate.execute(status -> consumeFromDatabase(tokenHash).map(user -> {
+            saveToDatabase(user, newTokenHash);
+            return new Rotation(user.getId(), user.getEmail(), newRawToken);
+        }));
+    }
+
+    public void revokeByRawToken(String rawToken) {
         String tokenHash = tokenGeneratorService.hashToken(rawToken);
+        if (useRedis()) {
+            redisStore.revoke(tokenHash);
+            if (RedisRefreshTokenStore.userIdOf(rawToken).isPresent() || !databaseFallbackActive()) {
+                return;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> refreshTokenRepository.findByTokenHash(tokenHash)
+                .filter(token -> !token.isRevoked())
+                .ifPresent(token -> refreshTokenRepository.revokeIfActive(token.getId(), LocalDateTime.now())));
+    }
+
+    public void revokeAllForUser(User user) {
+        if (useRedis()) {
+            redisStore.revokeAll(user.getId());
+            if (!databaseFallbackActive()) {
+                return;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> refreshTokenRepository.deleteAllByUser(user));
+    }
+
+    /**
+     * Deletes expired rows from {@code refresh_tokens} in batches, one statement per batch.
+     */
+    @Scheduled(cron = "${app.auth.refresh-tokens.purge-cron:0 15 4 * * *}")
+    public void purgeExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpiredBatch(now, purgeBatchSize);
+            total += deleted;
+        } while (deleted >= purgeBatchSize);
+        if (total > 0) {
+            log.info("Purged {} expired refresh tokens", total);
+        }
+    }
+
+    private Optional<User> consumeFromDatabase(String tokenHash) {
         LocalDateTime now = LocalDateTime.now();
         return refreshTokenRepository.findByTokenHash(tokenHash)
                 .filter(token -> !token.isRevoked())
-                .filter(token -> !token.isExpired(now));
+                .filter(token -> !token.isExpired(now))
+                // Conditional update: of two concurrent refreshes with the same token only one wins
+                .filter(token -> refreshTokenRepository.revokeIfActive(token.getId(), now) == 1)
+                .map(RefreshToken::getUser);
     }
 
-    @Transactional
-    public void revoke(RefreshToken refreshToken) {
-        refreshToken.setRevokedAt(LocalDateTime.now());
-        refreshToken.setLastUsedAt(LocalDateTime.now());
-        refreshTokenRepository.save(refreshToken);
+    private void saveToDatabase(User user, String tokenHash) {
+        refreshTokenRepository.save(RefreshToken.builder()
+                .user(user)
+                .tokenHash(tokenHash)
+                .expiresAt(LocalDateTime.now().plusNanos(refreshTokenExpirationMs * 1_000_000L))
+                .build());
     }
 
-    @Transactional
-    public void revokeByRawToken(String rawToken) {
-        String tokenHash = tokenGeneratorService.hashToken(rawToken);
-        refreshTokenRepository.findByTokenHash(tokenHash).ifPresent(this::revoke);
+    private boolean useRedis() {
+        return "redis".equalsIgnoreCase(store);
     }
 
-    @Transactional
-    public void revokeAllForUser(User user) {
-        refreshTokenRepository.deleteAllByUser(user);
+    private boolean databaseFallbackActive() {
+        return databaseFallbackUntil != null && !databaseFallbackUntil.isBlank()
+                && !LocalDate.now().isAfter(LocalDate.parse(databaseFallbackUntil.trim()));
     }
 }
@@ -0,0 +1,152 @@
+package com.mtsaas.backend.infrastructure.security;
+
+import com.mtsaas.backend.application.service.SecurityUser;
+import com.mtsaas.backend.infrastructure.redis.RedisRequestGateway;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Runs every Redis-backed check of a request in one round trip, right after authentication.
+ *
+ * The checks are the confirmation of a token the revocation filter flagged and the request rate
+ * limit: conversions per user according to their {@link ClientTier} (anonymous callers per IP), the auth and
+ * webhook endpoints per IP. Every limited response carries {@code X-RateLimit-Limit} and
+ * {@code X-RateLimit-Remaining}; rejected requests get a 429 with {@code Retry-After}. What happens
+ * when Redis is down is decided per check by its failure policy.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestChecksFilter extends OncePerRequestFilter {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private record Rule(String key, long limit) {
+    }
+
+    private final RedisRequestGateway redisGateway;
+    private final RateLimitingService rateLimitingService;
+    private final TokenBlacklistService tokenBlacklistService;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${app.rate-limit.conversion.anonymous-per-minute:10}")
+    private long anonymousConversionsPerMinute;
+
+    @Value("${app.rate-limit.conversion.user-per-minute:60}")
+    private long userConversionsPerMinute;
+
+    @Value("${app.rate-limit.conversion.paid-per-minute:300}")
+    private long paidConversionsPerMinute;
+
+    @Value("${app.rate-limit.conversion.admin-per-minute:600}")
+    private long adminConversionsPerMinute;
+
+    @Value("${app.rate-limit.auth-per-minute:20}")
+    private long authPerMinute;
+
+    @Value("${app.rate-limit.webhook-per-minute:120}")
+    private long webhookPerMinute;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Rule rule = rateLimitEnabled && !"OPTIONS".equals(request.getMethod()) ? resolveRule(request) : null;
+        if (rule != null) {
+            RateLimitingService.Decision cached = rateLimitingService.cachedDenial(rule.key(), rule.limit());
+            if (cached != null) {
+                reject(response, rule, cached);
+                return;
+            }
+        }
+
+        RedisRequestGateway.Batch batch = redisGateway.newBatch();
+        String revocationKey = (String) request.getAttribute(TokenBlacklistService.PENDING_REVOCATION_ATTRIBUTE);
+        RedisRequestGateway.Check<Boolean> revoked = revocationKey != null
+                ? tokenBlacklistService.confirmRevocation(batch, revocationKey) : null;
+        RedisRequestGateway.Check<RedisRequestGateway.BucketState> bucket = rule != null
+                ? rateLimitingService.addTo(batch, rule.key(), rule.limit(), WINDOW) : null;
+        batch.execute();
+
+        if (revoked != null && revoked.get()) {
+            log.info("Token is blacklisted (user logged out)");
+            SecurityContextHolder.clearContext();
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType("application/json");
+            response.setHeader("WWW-Authenticate", "Bearer error=\"invalid_token\", error_description=\"Token has been revoked\"");
+            response.getWriter().write("{\"error\":\"token_revoked\",\"message\":\"Token has been revoked\"}");
+            return;
+        }
+
+        if (bucket != null) {
+            RateLimitingService.Decision decision = rateLimitingService.complete(rule.key(), rule.limit(), bucket);
+            if (!decision.allowed()) {
+                reject(response, rule, decision);
+                return;
+            }
+            response.setHeader("X-RateLimit-Limit", Long.toString(decision.limit()));
+            response.setHeader("X-RateLimit-Remaining", Long.toString(decision.remaining()));
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, Rule rule, RateLimitingService.Decision decision)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMs() + 999) / 1000);
+        log.info("Rate limit exceeded for {}", rule.key());
+        response.setStatus(429);
+        response.setHeader("X-RateLimit-Limit", Long.toString(decision.limit()));
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"rate_limited\",\"message\":\"Too many requests, retry in "
+                + retryAfterSeconds + " seconds\",\"retryAfterSeconds\":" + retryAfterSeconds + "}");
+    }
+
+    private Rule resolveRule(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/v1/conversion/")) {
+            SecurityUser user = currentUser();
+            if (user == null) {
+                return new Rule("conversion:ip:" + ClientIpResolver.resolve(request), anonymousConversionsPerMinute);
+            }
+            long limit = switch (ClientTier.of(user.getUser())) {
+                case ADMIN -> adminConversionsPerMinute;
+                case PAID -> paidConversionsPerMinute;
+                default -> userConversionsPerMinute;
+            };
+            return new Rule("conversion:user:" + user.getUser().getId(), limit);
+        }
+        if (path.startsWith("/api/v1/auth/")) {
+            return new Rule("auth:ip:" + ClientIpResolver.resolve(request), authPerMinute);
+        }
+        if (path.equals("/api/v1/payments/webhook")) {
+            return new Rule("webhook:ip:" + ClientIpResolver.resolve(request), webhookPerMinute);
+        }
+        return null;
+    }
+
+    private SecurityUser currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof SecurityUser securityUser) {
+            return securityUser;
+        }
+        return null;
+    }
+}
@@ -1,8 +1,11 @@
 package com.mtsaas.backend.infrastructure.security;
 
+import com.mtsaas.backend.infrastructure.concurrency.ConversionConcurrencyFilter;
 import com.mtsaas.backend.infrastructure.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -29,14 +32,25 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RequestChecksFilter requestChecksFilter;
+    private final ConversionConcurrencyFilter conversionConcurrencyFilter;
     private final UserRepository userRepository;
     private final OAuth2SuccessHandler oAuth2SuccessHandler;
 
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
 
+    @Value("${app.security.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    @Value("${app.security.password-hashing.queue-capacity:32}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${app.security.password-hashing.timeout-ms:5000}")
+    private long passwordHashingTimeoutMs;
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -49,7 +63,11 @@ public class SecurityConfig {
                         .requestMatchers("/api/v1/feedback").permitAll()
                         .requestMatchers("/api/v1/contact-us").permitAll() // Allow unauthenticated contact us submissions
                         .requestMatchers("/api/v1/test/**").permitAll() // Email test endpoints
-                        .requestMatchers("/api/v1/health").permitAll() // Health check endpoint
+                        .requestMatchers("/api/v1/health", "/api/v1/health/**").permitAll() // Liveness and readiness
+                        // Served on the management port only, which is not exposed publicly
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
+                        // Recordings show the process in detail; admins only, even on the management port
+                        .requestMatchers(EndpointRequest.to("jfr")).hasRole("ADMIN")
                         .requestMatchers("/login/oauth2/code/**").permitAll()
                         .requestMatchers("/success").permitAll()
                         .requestMatchers("/callback-page").permitAll()
@@ -61,8 +79,13 @@ public class SecurityConfig {
                 .oauth2Login(oauth2 -> oauth2
                         .successHandler(oAuth2SuccessHandler)
                         .redirectionEndpoint(endpoint -> endpoint.baseUri("/login/oauth2/code/*")))
-                .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .authenticationProvider(authenticationProvider(passwordEncoder))
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Must follow the JWT filter: it confirms revocations that filter defers and
+                // limits conversions per user and plan tier
+                .addFilterAfter(requestChecksFilter, JwtAuthenticationFilter.class)
+                // Needs the user for its priority lanes; rate-limited requests never take a permit
+                .addFilterAfter(conversionConcurrencyFilter, RequestChecksFilter.class);
 
         return http.build();
     }
@@ -82,11 +105,11 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(username -> new com.mtsaas.backend.application.service.SecurityUser(
                 userRepository.findByEmail(username).orElseThrow(() -> new RuntimeException("User not found"))));
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -95,8 +118,13 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // BCrypt runs on its own bounded pool so login storms cannot take every request thread
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = passwordHashingThreads > 0
+                ? passwordHashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, passwordHashingQueueCapacity,
+                passwordHashingTimeoutMs, meterRegistry);
     }
 }
@@ -1,45 +1,214 @@
 package com.mtsaas.backend.infrastructure.security;
 
+import com.mtsaas.backend.infrastructure.redis.RedisRequestGateway;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * In-memory token blacklist service for logout functionality.
- * Blacklisted tokens are stored with their expiration time and cleaned up periodically.
+ * Cluster-wide revocation of access tokens (logout).
+ *
+ * Revoked tokens are identified by their {@code jti} claim (or a SHA-256 of the token for tokens
+ * issued without one) and stored in Redis with a TTL equal to the token's remaining lifetime, so the
+ * set cleans itself up. Every node keeps a local Bloom filter of revoked ids: a negative answer, which
+ * is the common case, is final and needs no network call; a positive answer is confirmed in Redis.
+ * New revocations are broadcast over pub/sub, and the filter is rebuilt from Redis periodically to
+ * drop expired entries and recover from missed messages.
+ *
+ * A filter hit can be confirmed as part of the request's {@link RedisRequestGateway} batch: the JWT
+ * filter leaves the key to confirm under {@link #PENDING_REVOCATION_ATTRIBUTE} and the request checks
+ * filter resolves it together with the rate limits.
+ *
+ * Without Redis the service degrades explicitly. A revocation that cannot be stored is kept in the local
+ * filter, so this node refuses the token at once, and is stored and broadcast by a retry every
+ * {@code app.security.revocation.retry-ms} until it succeeds or the token expires. Until the filter has
+ * been loaded from Redis once, it cannot prove anything, so every token is confirmed in Redis; if Redis is
+ * unreachable then, {@code app.security.revocation.unloaded-failure-policy} applies instead of the usual
+ * policy. It defaults to OPEN, so a cold start during a Redis outage does not log every user out, while
+ * tokens revoked on this node stay refused. The load is retried on the same short interval.
  */
 @Service
+@Slf4j
 public class TokenBlacklistService {
 
-    private final Map<String, Long> blacklistedTokens = new ConcurrentHashMap<>();
+    static final String KEY_PREFIX = "revoked:jti:";
+    static final String CHANNEL = "revoked-tokens";
+
+    public static final String PENDING_REVOCATION_ATTRIBUTE = TokenBlacklistService.class.getName() + ".pending";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    // A filter hit is almost always a real revocation, so by default fail closed
+    @Value("${app.security.revocation.redis-failure-policy:CLOSED}")
+    private RedisRequestGateway.FailurePolicy failurePolicy = RedisRequestGateway.FailurePolicy.CLOSED;
+
+    // Before the first load nearly every check is a plain valid token, so by default fail open
+    @Value("${app.security.revocation.unloaded-failure-policy:OPEN}")
+    private RedisRequestGateway.FailurePolicy unloadedFailurePolicy = RedisRequestGateway.FailurePolicy.OPEN;
+
+    @Value("${app.security.revocation.bloom-expected-insertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${app.security.revocation.bloom-false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter revokedIds;
+    private volatile boolean loaded;
+    // Revocations not yet stored in Redis, by id, with the token's expiry in epoch milliseconds
+    private final Map<String, Long> unpublished = new ConcurrentHashMap<>();
+    // Filter being rebuilt; receives broadcast revocations too so none are lost in the swap
+    private volatile BloomFilter rebuilding;
+
+    public TokenBlacklistService(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        revokedIds = new BloomFilter(expectedInsertions, falsePositiveRate);
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String id = new String(message.getBody(), StandardCharsets.UTF_8);
+            revokedIds.add(id);
+            BloomFilter pending = rebuilding;
+            if (pending != null) {
+                pending.add(id);
+            }
+        }, new ChannelTopic(CHANNEL));
+        rebuildFilter();
+    }
 
     /**
-     * Add a token to the blacklist
-     * @param token The JWT token to blacklist
-     * @param expirationTime The expiration time of the token in milliseconds
+     * Revokes the token until it expires.
+     *
+     * @return false if the revocation could not be stored in Redis yet: it applies on this node and is
+     *         retried for the others
      */
-    public void blacklistToken(String token, long expirationTime) {
-        blacklistedTokens.put(token, expirationTime);
+    public boolean revoke(Claims claims, String token) {
+        String id = tokenId(claims, token);
+        long expiresAt = claims.getExpiration().getTime();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return true;
+        }
+        revokedIds.add(id);
+        try {
+            publish(id, expiresAt);
+            return true;
+        } catch (Exception e) {
+            unpublished.put(id, expiresAt);
+            log.warn("Could not store revocation in Redis, revoked on this node only until a retry succeeds: {}",
+                    e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * Check if a token is blacklisted
-     * @param token The JWT token to check
-     * @return true if the token is blacklisted, false otherwise
+     * Returns the Redis key that must be checked to know whether the token is revoked, or null when
+     * the local filter already proves it is not.
      */
-    public boolean isBlacklisted(String token) {
-        return blacklistedTokens.containsKey(token);
+    public String revocationKeyToConfirm(Claims claims, String token) {
+        String id = tokenId(claims, token);
+        return !loaded || revokedIds.mightContain(id) ? KEY_PREFIX + id : null;
     }
 
     /**
-     * Scheduled cleanup of expired tokens from the blacklist
-     * Runs every hour to remove tokens that have naturally expired
+     * Adds the confirmation of a {@link #revocationKeyToConfirm} key to a gateway batch.
      */
-    @Scheduled(fixedRate = 3600000) // Every hour
-    public void cleanupExpiredTokens() {
-        long currentTime = System.currentTimeMillis();
-        blacklistedTokens.entrySet().removeIf(entry -> entry.getValue() < currentTime);
+    public RedisRequestGateway.Check<Boolean> confirmRevocation(RedisRequestGateway.Batch batch, String key) {
+        // Only a filter hit suggests a revocation; a check forced by the missing first load does not
+        boolean suspected = loaded || revokedIds.mightContain(key.substring(KEY_PREFIX.length()));
+        return batch.exists(key, suspected ? failurePolicy : unloadedFailurePolicy);
+    }
+
+    /**
+     * Rebuilds the local filter from Redis, dropping ids whose tokens have expired since.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.refresh-ms:300000}",
+            initialDelayString = "${app.security.revocation.refresh-ms:300000}")
+    public synchronized void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, falsePositiveRate);
+        rebuilding = rebuilt;
+        int count = 0;
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(KEY_PREFIX + "*").count(1000).build())) {
+            while (keys.hasNext()) {
+                rebuilt.add(keys.next().substring(KEY_PREFIX.length()));
+                count++;
+            }
+        } catch (Exception e) {
+            log.warn("Could not load revoked tokens from Redis, keeping current filter: {}", e.getMessage());
+            return;
+        } finally {
+            rebuilding = null;
+        }
+        // Revocations still waiting for Redis are not in it yet
+        unpublished.keySet().forEach(rebuilt::add);
+        revokedIds = rebuilt;
+        loaded = true;
+        if (count > expectedInsertions) {
+            log.warn("{} revoked tokens exceed the Bloom filter capacity of {}", count, expectedInsertions);
+        }
+        log.debug("Rebuilt revoked-token filter with {} entries", count);
+    }
+
+    /**
+     * Loads the filter if that has not succeeded yet and stores the revocations Redis missed.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.retry-ms:5000}",
+            initialDelayString = "${app.security.revocation.retry-ms:5000}")
+    public void retry() {
+        if (!loaded) {
+            rebuildFilter();
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Long> entry : unpublished.entrySet()) {
+            try {
+                if (entry.getValue() > now) {
+                    publish(entry.getKey(), entry.getValue());
+                }
+                unpublished.remove(entry.getKey());
+            } catch (Exception e) {
+                log.debug("Revocation still not stored in Redis: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void publish(String id, long expiresAt) {
+        long remainingMs = expiresAt - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            return;
+        }
+        redisTemplate.opsForValue().set(KEY_PREFIX + id, "1", Duration.ofMillis(remainingMs));
+        redisTemplate.convertAndSend(CHANNEL, id);
+    }
+
+    static String tokenId(Claims claims, String token) {
+        if (claims.getId() != null && !claims.getId().isBlank()) {
+            return claims.getId();
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -1,5 +1,7 @@
 package com.mtsaas.backend.infrastructure.xml;
 
+import com.mtsaas.backend.infrastructure.jfr.XsdEvent;
+import com.mtsaas.backend.infrastructure.metrics.ConversionMetrics;
 import org.springframework.stereotype.Component;
 import org.xml.sax.SAXException;
 
@@ -10,25 +12,118 @@ import javax.xml.validation.Validator;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Validates documents against the message XSDs on the classpath.
+ *
+ * A compiled {@link Schema} is immutable and thread-safe, so each XSD is compiled once and kept; only the
+ * {@link Validator}, which is not thread-safe, is created per call. {@link #precompile} lets the warm-up
+ * pay the compilation before the first conversion does. {@link #extractDocument} cuts the
+ * {@code Document} element, which the message XSDs describe, out of a full message with its header.
+ */
 @Component
 public class XmlValidator {
 
+    // Start of a Document element, optionally namespace-prefixed; group 1 is the qualified name
+    private static final Pattern DOCUMENT_START = Pattern.compile("<((?:[A-Za-z_][\\w.-]*:)?Document)(?=[\\s/>])");
+
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@code Document} element of {@code xml} (also when prefixed, e.g. {@code <doc:Document>}).
+     *
+     * @throws IllegalArgumentException if there is no Document element or it is not closed
+     */
+    public static String extractDocument(String xml) {
+        Matcher start = DOCUMENT_START.matcher(xml);
+        if (!start.find()) {
+            throw new IllegalArgumentException("No Document element found in the message");
+        }
+        int tagEnd = xml.indexOf('>', start.end());
+        if (tagEnd < 0) {
+            throw new IllegalArgumentException("Document element is not closed");
+        }
+        if (xml.charAt(tagEnd - 1) == '/') {
+            return xml.substring(start.start(), tagEnd + 1);
+        }
+        Matcher end = Pattern.compile("</" + Pattern.quote(start.group(1)) + "\\s*>").matcher(xml);
+        if (!end.find(tagEnd)) {
+            throw new IllegalArgumentException("Document element is not closed");
+        }
+        return xml.substring(start.start(), end.end());
+    }
+
+    public boolean hasSchema(String xsdPath) {
+        return Thread.currentThread().getContextClassLoader().getResource(xsdPath) != null
+                || getClass().getClassLoader().getResource(xsdPath) != null;
+    }
+
+    /**
+     * Compiles the XSD unless it is already cached.
+     */
+    public void precompile(String xsdPath) {
+        try {
+            schema(xsdPath);
+        } catch (SAXException e) {
+            throw new RuntimeException("Could not compile " + xsdPath + ": " + e.getMessage(), e);
+        }
+    }
+
     public void validate(String xmlContent, String xsdPath) {
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
-            SchemaFactory factory = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            URL xsdUrl = Thread.currentThread().getContextClassLoader().getResource(xsdPath);
-            if (xsdUrl == null) {
-                xsdUrl = getClass().getClassLoader().getResource(xsdPath);
-            }
-            if (xsdUrl == null) {
-                throw new IllegalStateException("XSD file not found in classpath: " + xsdPath);
+            Schema schema = schema(xsdPath);
+
+            XsdEvent validateEvent = new XsdEvent();
+            validateEvent.begin();
+            try {
+                Validator validator = schema.newValidator();
+                validator.validate(new StreamSource(new StringReader(xmlContent)));
+                failed = false;
+            } finally {
+                commit(validateEvent, XsdEvent.VALIDATE, xsdPath, xmlContent.length(), !failed);
             }
-            Schema schema = factory.newSchema(xsdUrl);
-            Validator validator = schema.newValidator();
-            validator.validate(new StreamSource(new StringReader(xmlContent)));
         } catch (SAXException | IOException e) {
             throw new RuntimeException("XML Validation failed against " + xsdPath + ": " + e.getMessage(), e);
+        } finally {
+            ConversionMetrics.recordNested("validate", System.nanoTime() - start, failed);
+        }
+    }
+
+    private Schema schema(String xsdPath) throws SAXException {
+        Schema schema = schemas.get(xsdPath);
+        if (schema != null) {
+            return schema;
+        }
+        URL xsdUrl = Thread.currentThread().getContextClassLoader().getResource(xsdPath);
+        if (xsdUrl == null) {
+            xsdUrl = getClass().getClassLoader().getResource(xsdPath);
+        }
+        if (xsdUrl == null) {
+            throw new IllegalStateException("XSD file not found in classpath: " + xsdPath);
+        }
+        XsdEvent compileEvent = new XsdEvent();
+        compileEvent.begin();
+        // Two threads may compile the same schema concurrently at startup; either result is fine to keep
+        schema = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsdUrl);
+        commit(compileEvent, XsdEvent.COMPILE, xsdPath, 0, true);
+        schemas.putIfAbsent(xsdPath, schema);
+        return schema;
+    }
+
+    private static void commit(XsdEvent event, String operation, String schema, long documentSize, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.schema = schema;
+            event.documentSize = documentSize;
+            event.success = success;
+            event.commit();
         }
     }
 }
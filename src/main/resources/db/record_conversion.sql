@@ -0,0 +1,102 @@
+-- Records one conversion attempt in a single round trip: checks the anonymous quota or the
+-- user's credit balance, inserts the conversion row, deducts credits (direct credits first,
+-- then purchases by earliest expiry) and appends the credit_usage ledger entry.
+-- Returns result_code OK, ANONYMOUS_LIMIT_REACHED or INSUFFICIENT_CREDITS; when the code is not
+-- OK the conversion is stored as FAILED with that code as its error message.
+CREATE OR REPLACE FUNCTION record_conversion(
+    p_user_id uuid,
+    p_ip_address varchar,
+    p_conversion_type varchar,
+    p_status varchar,
+    p_input_content text,
+    p_output_content text,
+    p_error_message text,
+    p_message_type varchar,
+    p_reference varchar,
+    p_uetr varchar,
+    p_sender_bic varchar,
+    p_receiver_bic varchar,
+    p_amount numeric,
+    p_currency varchar,
+    p_credits bigint,
+    p_description varchar)
+RETURNS TABLE (result_code varchar, result_conversion_id uuid, result_remaining_credits bigint)
+LANGUAGE plpgsql AS $fn$
+DECLARE
+    v_now timestamp := localtimestamp;
+    v_id uuid := gen_random_uuid();
+    v_direct bigint := 0;
+    v_purchased bigint := 0;
+    v_remaining bigint := p_credits;
+    v_take bigint;
+    v_purchase record;
+    v_code varchar := 'OK';
+BEGIN
+    IF p_user_id IS NOT NULL THEN
+        SELECT u.credits INTO v_direct FROM users u WHERE u.id = p_user_id FOR UPDATE;
+        IF NOT FOUND THEN
+            -- Unknown principal (e.g. the development mock token) is treated as anonymous
+            p_user_id := NULL;
+            v_direct := 0;
+        END IF;
+    END IF;
+
+    IF p_user_id IS NULL THEN
+        -- Serialise attempts per IP so concurrent requests cannot both use the free conversion
+        PERFORM pg_advisory_xact_lock(hashtext('anonymous:' || coalesce(p_ip_address, '')));
+        IF EXISTS (SELECT 1 FROM conversions c WHERE c.ip_address = p_ip_address AND c.user_id IS NULL) THEN
+            v_code := 'ANONYMOUS_LIMIT_REACHED';
+        END IF;
+    ELSE
+        UPDATE credit_purchases SET expired = true
+            WHERE user_id = p_user_id AND expired = false AND expiry_date <= v_now;
+        SELECT coalesce(sum(cp.credit_amount), 0) INTO v_purchased FROM credit_purchases cp
+            WHERE cp.user_id = p_user_id AND cp.expired = false AND cp.expiry_date > v_now;
+        IF v_direct + v_purchased < p_credits THEN
+            v_code := 'INSUFFICIENT_CREDITS';
+        END IF;
+    END IF;
+
+    IF v_code <> 'OK' THEN
+        p_status := 'FAILED';
+        p_error_message := v_code;
+        p_output_content := NULL;
+    END IF;
+
+    INSERT INTO conversions (id, user_id, conversion_type, input_content, output_content, status,
+            error_message, ip_address, message_type, reference, uetr, sender_bic, receiver_bic,
+            amount, currency, created_at, updated_at)
+    VALUES (v_id, p_user_id, p_conversion_type, p_input_content, p_output_content, p_status,
+            p_error_message, p_ip_address, p_message_type, p_reference, p_uetr, p_sender_bic,
+            p_receiver_bic, p_amount, p_currency, v_now, v_now);
+
+    IF v_code = 'OK' AND p_status = 'SUCCESS' AND p_user_id IS NOT NULL THEN
+        v_take := least(v_remaining, v_direct);
+        IF v_take > 0 THEN
+            UPDATE users SET credits = credits - v_take, updated_at = v_now WHERE id = p_user_id;
+            v_direct := v_direct - v_take;
+            v_remaining := v_remaining - v_take;
+        END IF;
+
+        FOR v_purchase IN
+            SELECT cp.id, cp.credit_amount FROM credit_purchases cp
+            WHERE cp.user_id = p_user_id AND cp.expired = false AND cp.expiry_date > v_now
+            ORDER BY cp.expiry_date
+            FOR UPDATE
+        LOOP
+            EXIT WHEN v_remaining <= 0;
+            v_take := least(v_remaining, v_purchase.credit_amount);
+            UPDATE credit_purchases
+                SET credit_amount = credit_amount - v_take, expired = (credit_amount - v_take <= 0)
+                WHERE id = v_purchase.id;
+            v_purchased := v_purchased - v_take;
+            v_remaining := v_remaining - v_take;
+        END LOOP;
+
+        INSERT INTO credit_usage (id, user_id, credits_used, service_type, conversion_id, created_at, description)
+        VALUES (gen_random_uuid(), p_user_id, p_credits, p_conversion_type, v_id, v_now, p_description);
+    END IF;
+
+    RETURN QUERY SELECT v_code, v_id, v_direct + v_purchased;
+END
+$fn$;
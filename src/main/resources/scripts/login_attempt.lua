@@ -0,0 +1,20 @@
+-- Counts a login attempt from a client address, or refuses it once the window's failures are used up.
+-- Checking and counting in one step keeps parallel attempts from all passing the check before any counts.
+-- KEYS[1] = attempt counter, ARGV[1] = max failures, ARGV[2] = window seconds
+-- Returns 0 when the attempt may go ahead (it is then counted), otherwise the seconds until the window ends.
+local count = tonumber(redis.call('GET', KEYS[1]) or '0')
+local ttl = redis.call('TTL', KEYS[1])
+if count >= tonumber(ARGV[1]) then
+    if ttl < 0 then
+        -- A counter without an expiry would lock the address out for good
+        redis.call('EXPIRE', KEYS[1], ARGV[2])
+        ttl = tonumber(ARGV[2])
+    end
+    return math.max(ttl, 1)
+end
+redis.call('INCR', KEYS[1])
+if ttl < 0 then
+    -- The window starts with the first attempt
+    redis.call('EXPIRE', KEYS[1], ARGV[2])
+end
+return 0
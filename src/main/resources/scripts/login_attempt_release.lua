@@ -0,0 +1,6 @@
+-- Takes back an attempt counted by login_attempt.lua that did not fail on the password.
+-- KEYS[1] = attempt counter; DECR keeps the window's expiry.
+if tonumber(redis.call('GET', KEYS[1]) or '0') > 0 then
+    redis.call('DECR', KEYS[1])
+end
+return 0
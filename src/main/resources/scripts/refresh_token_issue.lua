@@ -0,0 +1,23 @@
+-- Stores a refresh token, optionally consuming the token it replaces in the same step (rotation).
+-- KEYS[1] = new token key, KEYS[2] = owner's token set key, KEYS[3] = key of the token being rotated
+-- (absent for a fresh issue)
+-- ARGV[1] = owner "<userId>:<email>" for a fresh issue; when rotating, "<userId>:" the rotated token must
+-- belong to (the owner is inherited from it)
+-- ARGV[2] = ttl ms, ARGV[3] = new token hash, ARGV[4] = rotated token hash
+-- Returns the owner, or false if the rotated token no longer exists (already used, revoked or expired)
+-- or belongs to another user.
+local owner = ARGV[1]
+if KEYS[3] then
+    owner = redis.call('GET', KEYS[3])
+    if not owner or string.sub(owner, 1, string.len(ARGV[1])) ~= ARGV[1] then
+        return false
+    end
+    redis.call('DEL', KEYS[3])
+    redis.call('SREM', KEYS[2], ARGV[4])
+end
+
+redis.call('SET', KEYS[1], owner, 'PX', ARGV[2])
+redis.call('SADD', KEYS[2], ARGV[3])
+-- The set lives as long as the newest token; members of expired tokens are harmless and go with it
+redis.call('PEXPIRE', KEYS[2], ARGV[2])
+return owner
@@ -0,0 +1,55 @@
+-- All Redis checks of one request in a single atomic call.
+-- KEYS[i] is the key of check i; ARGV holds, for each check in order, its kind followed by its arguments:
+--   'exists'                                -> {1 if the key exists, else 0}
+--   'bucket', capacity, refill_per_ms, cost -> {allowed (1/0), remaining whole tokens, retry after ms}
+-- Token buckets use the Redis server clock so all nodes share one time source.
+local results = {}
+local arg = 1
+local now = nil
+
+for i, key in ipairs(KEYS) do
+    local kind = ARGV[arg]
+    if kind == 'exists' then
+        results[i] = {redis.call('EXISTS', key)}
+        arg = arg + 1
+    elseif kind == 'bucket' then
+        local capacity = tonumber(ARGV[arg + 1])
+        local refill_per_ms = tonumber(ARGV[arg + 2])
+        local cost = tonumber(ARGV[arg + 3])
+        arg = arg + 4
+
+        if now == nil then
+            local time = redis.call('TIME')
+            now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+        end
+
+        local state = redis.call('HMGET', key, 'tokens', 'ts')
+        local tokens = tonumber(state[1])
+        local ts = tonumber(state[2])
+        if tokens == nil or ts == nil then
+            tokens = capacity
+            ts = now
+        end
+        if now > ts then
+            tokens = math.min(capacity, tokens + (now - ts) * refill_per_ms)
+        end
+
+        local allowed = 0
+        local retry_after = 0
+        if tokens >= cost then
+            tokens = tokens - cost
+            allowed = 1
+        else
+            retry_after = math.ceil((cost - tokens) / refill_per_ms)
+        end
+
+        redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', tostring(now))
+        -- A full refill takes capacity / refill_per_ms; after that the bucket is indistinguishable from new
+        redis.call('PEXPIRE', key, math.ceil(capacity / refill_per_ms) + 1000)
+        results[i] = {allowed, math.floor(tokens), retry_after}
+    else
+        return redis.error_reply('unknown check kind ' .. tostring(kind))
+    end
+end
+
+return results